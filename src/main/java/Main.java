@@ -1,26 +1,38 @@
+import cache.CachePolicy;
+import cache.CacheStore;
+import cache.FileCacheStore;
+import cache.IndexedCacheStore;
 import models.Security;
+import models.IndustryAliases;
+import models.IndustryMatchCache;
 import models.SecurityDetailsCache;
+import models.SimilarNamesCache;
 import org.apache.commons.cli.*;
 import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
+import services.HttpFetcher;
 import services.PortfolioDocumentService;
+import services.RateLimiter;
 import services.SecurityService;
 import xml.XmlFileReader;
 import xml.XmlFileWriter;
 import xml.XmlHelper;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.time.Duration;
 import java.util.List;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
 import static constants.PathConstants.CACHE_FILE_NAME;
+import static constants.PathConstants.INDUSTRY_MATCH_CACHE_FILE_NAME;
+import static constants.PathConstants.SIMILAR_NAMES_CACHE_FILE_NAME;
 
 public class Main {
     private static final Logger logger = Logger.getLogger(Main.class.getCanonicalName());
@@ -29,7 +41,7 @@ public class Main {
     XmlFileWriter xmlFileWriter = new XmlFileWriter();
     XmlHelper xmlHelper = new XmlHelper();
 
-    public static void main(String[] args) throws IOException, TransformerException, ParserConfigurationException, SAXException {
+    public static void main(String[] args) throws IOException, TransformerException, ParserConfigurationException, SAXException, XMLStreamException {
         Main main = new Main();
 
         Options options = new Options();
@@ -38,13 +50,13 @@ public class Main {
         Option inputFile = Option.builder("inputfile")
                 .argName("file")
                 .hasArg()
-                .desc("source Portfolio Performance xml-file")
+                .desc("source Portfolio Performance xml-file, may be gzipped or zipped")
                 .build();
         options.addOption(inputFile);
         Option outputFile = Option.builder("outputfile")
                 .argName("file")
                 .hasArg()
-                .desc("destination Portfolio Performance xml-file (will be overridden!!!)")
+                .desc("destination Portfolio Performance xml-file (will be overridden!!!), gzipped for .gz, zipped for .zip")
                 .build();
         options.addOption(outputFile);
         Option cacheDir = Option.builder("cachedir")
@@ -59,6 +71,52 @@ public class Main {
                 .desc("java.util.logging logging.properties")
                 .build();
         options.addOption(logConfigFile);
+        Option threads = Option.builder("threads")
+                .argName("count")
+                .hasArg()
+                .desc("number of securities resolved concurrently (default 1)")
+                .build();
+        options.addOption(threads);
+        Option rateLimit = Option.builder("ratelimit")
+                .argName("requests")
+                .hasArg()
+                .desc("maximum requests per second sent to each provider host (default unlimited)")
+                .build();
+        options.addOption(rateLimit);
+        Option retries = Option.builder("retries")
+                .argName("count")
+                .hasArg()
+                .desc("number of retries for a failed or throttled request (default " + HttpFetcher.DEFAULT_MAX_RETRIES + ")")
+                .build();
+        options.addOption(retries);
+        Option backoff = Option.builder("backoff")
+                .argName("milliseconds")
+                .hasArg()
+                .desc("wait time before the first retry, doubled for each further retry (default " + HttpFetcher.DEFAULT_INITIAL_BACKOFF.toMillis() + ")")
+                .build();
+        options.addOption(backoff);
+        Option cacheStoreType = Option.builder("cachestore")
+                .argName("type")
+                .hasArg()
+                .desc("\"files\" for one file per cached artifact (default) or \"indexed\" for one indexed data file in cachedir")
+                .build();
+        options.addOption(cacheStoreType);
+        Option cacheTtl = Option.builder("cachettl")
+                .argName("days")
+                .hasArg()
+                .desc("days until cached details are loaded again, for all (e.g. \"7\") or per artifact (e.g. \"json=7,metadata=30,security_type=365,details_request_path=90\"), default never")
+                .build();
+        options.addOption(cacheTtl);
+        Option industryAliasesFile = Option.builder("industryaliases")
+                .argName("file")
+                .hasArg()
+                .desc("JSON file with industry aliases and ISIN overrides added to the built-in ones, see " + IndustryAliases.DEFAULT_RESOURCE)
+                .build();
+        options.addOption(industryAliasesFile);
+        Option parallelTaxonomies = new Option("paralleltaxonomies", "import the taxonomies concurrently, each in a thread of its own");
+        options.addOption(parallelTaxonomies);
+        Option migrateCache = new Option("migratecache", "import the per-file cache in cachedir into the indexed cache store and exit");
+        options.addOption(migrateCache);
 
         CommandLineParser parser = new DefaultParser();
         try {
@@ -90,8 +148,47 @@ public class Main {
                     }
                 }
                 String logsDir = cacheDirFile + FileSystems.getDefault().getSeparator() + "logs";
+                int threadCount = 1;
+                if (line.hasOption(threads)) {
+                    threadCount = Integer.parseInt(line.getOptionValue(threads));
+                }
+                RateLimiter rateLimiter = RateLimiter.unlimited();
+                if (line.hasOption(rateLimit)) {
+                    double requestsPerSecond = Double.parseDouble(line.getOptionValue(rateLimit));
+                    rateLimiter = new RateLimiter(requestsPerSecond, (int) Math.ceil(requestsPerSecond));
+                }
+                int retryCount = HttpFetcher.DEFAULT_MAX_RETRIES;
+                if (line.hasOption(retries)) {
+                    retryCount = Integer.parseInt(line.getOptionValue(retries));
+                }
+                Duration initialBackoff = HttpFetcher.DEFAULT_INITIAL_BACKOFF;
+                if (line.hasOption(backoff)) {
+                    initialBackoff = Duration.ofMillis(Long.parseLong(line.getOptionValue(backoff)));
+                }
+                HttpFetcher httpFetcher = new HttpFetcher(rateLimiter, retryCount, initialBackoff);
+                boolean indexedCache = false;
+                if (line.hasOption(cacheStoreType)) {
+                    String type = line.getOptionValue(cacheStoreType);
+                    if ("indexed".equalsIgnoreCase(type)) {
+                        indexedCache = true;
+                    } else if (!"files".equalsIgnoreCase(type)) {
+                        throw new ParseException("Unknown cache store type " + type);
+                    }
+                }
+                CachePolicy cachePolicy = CachePolicy.unlimited();
+                if (line.hasOption(cacheTtl)) {
+                    try {
+                        cachePolicy = CachePolicy.parse(line.getOptionValue(cacheTtl));
+                    } catch (IllegalArgumentException e) {
+                        throw new ParseException("Invalid " + cacheTtl.getOpt() + ": " + e.getMessage());
+                    }
+                }
+                // built-in aliases if no file is given
+                IndustryAliases industryAliases = IndustryAliases.load(line.getOptionValue(industryAliasesFile));
                 String inputFileName = line.getOptionValue(inputFile);
-                if (inputFileName == null) {
+                if (line.hasOption(migrateCache)) {
+                    main.migrateCache(cacheDirFile);
+                } else if (inputFileName == null) {
                     System.err.println("Missing required parameter " + inputFile.getKey());
                     HelpFormatter formatter = new HelpFormatter();
                     formatter.printHelp("PortfolioPerformanceSecurityClassifier", options);
@@ -105,47 +202,67 @@ public class Main {
                     if (outputFileName != null) {
                         if (inputFileName.equalsIgnoreCase(outputFileName))
                             System.err.println(inputFile.getKey() + " and " + outputFile.getKey() + " must not be the same, you could lose data!");
-                        main.run(inputFileName, outputFileName, cacheDirFile, logsDir);
+                        try (CacheStore cacheStore = indexedCache ? new IndexedCacheStore(cacheDirFile) : new FileCacheStore(cacheDirFile)) {
+                            main.run(inputFileName, outputFileName, cacheDirFile, logsDir, threadCount, httpFetcher, cacheStore, cachePolicy, industryAliases, line.hasOption(parallelTaxonomies));
+                        }
                     }
                 }
             }
-        } catch (ParseException exp) {
+        } catch (ParseException | NumberFormatException exp) {
             // oops, something went wrong
             System.err.println("Parsing of parameters failed. Reason: " + exp.getMessage());
         }
     }
 
-    private void run(String inputFileName, String outputFileName, String cacheDir, String logsDir) throws IOException, TransformerException, ParserConfigurationException, SAXException {
+    private void run(String inputFileName, String outputFileName, String cacheDir, String logsDir, int threadCount, HttpFetcher httpFetcher, CacheStore cacheStore, CachePolicy cachePolicy, IndustryAliases industryAliases, boolean parallelTaxonomies) throws IOException, TransformerException, ParserConfigurationException, SAXException, XMLStreamException {
         logger.info("inputFileName = " + inputFileName);
         logger.info("outputFileName = " + outputFileName);
         logger.info("cacheDir = " + cacheDir);
         logger.info("logsDir = " + logsDir);
+        logger.info("threads = " + threadCount);
+        logger.info("cacheStore = " + cacheStore.getClass().getSimpleName());
+        logger.info("cacheTtl = " + cachePolicy);
+        logger.info("industryAliases = " + industryAliases.size());
+        logger.info("parallelTaxonomies = " + parallelTaxonomies);
 
-        securityService = new SecurityService(cacheDir);
+        securityService = new SecurityService(cacheStore, cachePolicy, threadCount, httpFetcher);
         SecurityDetailsCache securityDetailsCache = new SecurityDetailsCache(cacheDir + FileSystems.getDefault().getSeparator() + CACHE_FILE_NAME);
+        // names compared in previous runs are not compared again
+        SimilarNamesCache similarNamesCache = new SimilarNamesCache(cacheDir + FileSystems.getDefault().getSeparator() + SIMILAR_NAMES_CACHE_FILE_NAME, SimilarNamesCache.DEFAULT_MAXIMUM_SIZE);
+        IndustryMatchCache industryMatchCache = new IndustryMatchCache(cacheDir + FileSystems.getDefault().getSeparator() + INDUSTRY_MATCH_CACHE_FILE_NAME);
 
-        Document portfolioDocument = loadPortfolioDocumentFromFile(inputFileName);
+        // the securities are read (and their details fetched) in a streaming pass before the document is loaded
+        List<Security> updatedSecurities = addClassificationData(inputFileName);
 
-        NodeList allSecurities = getAllSecuritiesFromPortfolio(portfolioDocument);
-//        securityService.removeOldPrices(allSecurities);
-        List<Security> updatedSecurities = addClassificationData(allSecurities);
+        // only the updated taxonomies are loaded into a document, the rest of the file is copied while writing
+        Document taxonomyDocument = loadTaxonomiesFromFile(inputFileName);
 
-        portfolioDocumentService = new PortfolioDocumentService(logsDir);
-        portfolioDocumentService.updateXml(portfolioDocument, updatedSecurities, securityDetailsCache);
+        portfolioDocumentService = new PortfolioDocumentService(logsDir, similarNamesCache, industryMatchCache, industryAliases);
+        portfolioDocumentService.updateXml(taxonomyDocument, updatedSecurities, securityDetailsCache, parallelTaxonomies);
+        similarNamesCache.save();
+        industryMatchCache.save();
 
-        xmlFileWriter.writeXml(portfolioDocument, outputFileName);
+        xmlFileWriter.writeXml(inputFileName, taxonomyDocument, outputFileName);
     }
 
-    List<Security> addClassificationData(NodeList allSecurities) {
-        return securityService.processSecurities(allSecurities);
+    private void migrateCache(String cacheDir) throws IOException {
+        FileCacheStore fileCacheStore = new FileCacheStore(cacheDir);
+        try (IndexedCacheStore indexedCacheStore = new IndexedCacheStore(cacheDir)) {
+            int importedCount = indexedCacheStore.importFrom(fileCacheStore);
+            logger.info("Imported " + importedCount + " cached artifacts from " + cacheDir + " into " + indexedCacheStore);
+        }
     }
 
-    NodeList getAllSecuritiesFromPortfolio(Document portfolioDoc) {
-        return new XmlFileReader().getAllSecurities(portfolioDoc);
+    List<Security> addClassificationData(String inputFileName) throws IOException, XMLStreamException {
+        try (InputStream portfolio = xmlHelper.openPortfolioFile(inputFileName)) {
+            return securityService.processSecurities(portfolio);
+        }
     }
 
-    Document loadPortfolioDocumentFromFile(String inputFileName) throws IOException, ParserConfigurationException, SAXException {
-        return xmlHelper.readXmlStream(inputFileName);
+    Document loadTaxonomiesFromFile(String inputFileName) throws IOException, ParserConfigurationException, XMLStreamException {
+        try (InputStream portfolio = xmlHelper.openPortfolioFile(inputFileName)) {
+            return new XmlFileReader().readTaxonomies(portfolio, PortfolioDocumentService.UPDATED_TAXONOMIES);
+        }
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,44 @@
+package cache;
+
+/**
+ * The pieces of information cached for each security, named after the suffix of their file in the cache directory.
+ * The code identifies the artifact in the records of {@link IndexedCacheStore}, so it must never change.
+ */
+public enum CacheArtifact {
+    SECURITY_TYPE(0, "-type.txt"),
+    DETAILS_REQUEST_PATH(1, ".txt"),
+    JSON(2, ".json"),
+    METADATA(3, "-metadata.txt"),
+    VALIDATORS(4, "-validators.txt");
+
+    private final byte code;
+    private final String fileSuffix;
+
+    CacheArtifact(int code, String fileSuffix) {
+        this.code = (byte) code;
+        this.fileSuffix = fileSuffix;
+    }
+
+    /**
+     * @return the artifact with this code or null if there is none
+     */
+    public static CacheArtifact fromCode(byte code) {
+        for (CacheArtifact artifact : values()) {
+            if (artifact.code == code) return artifact;
+        }
+        return null;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public String getFileSuffix() {
+        return fileSuffix;
+    }
+
+    public String getFileName(String isin) {
+        return isin + fileSuffix;
+    }
+
+}
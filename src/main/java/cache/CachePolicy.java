@@ -0,0 +1,85 @@
+package cache;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Time to live of each cached artifact. A cached artifact older than its time to live is stale and is loaded again;
+ * artifacts without a time to live never expire.
+ */
+public class CachePolicy {
+    private final Map<CacheArtifact, Duration> timesToLive;
+
+    public CachePolicy(Map<CacheArtifact, Duration> timesToLive) {
+        EnumMap<CacheArtifact, Duration> copy = new EnumMap<>(CacheArtifact.class);
+        copy.putAll(timesToLive);
+        this.timesToLive = Collections.unmodifiableMap(copy);
+    }
+
+    /**
+     * @return policy keeping every cached artifact forever
+     */
+    public static CachePolicy unlimited() {
+        return new CachePolicy(Collections.emptyMap());
+    }
+
+    /**
+     * Parses a list like "json=7,metadata=30" with the time to live in days for each artifact (see
+     * {@link CacheArtifact} for the names); a single number like "7" is used for all artifacts.
+     *
+     * @throws IllegalArgumentException if the list contains an unknown artifact or no number of days
+     */
+    public static CachePolicy parse(String specification) {
+        Map<CacheArtifact, Duration> timesToLive = new EnumMap<>(CacheArtifact.class);
+        for (String part : specification.split(",")) {
+            String trimmed = part.trim();
+            if (trimmed.isEmpty()) continue;
+            int separator = trimmed.indexOf('=');
+            if (separator < 0) {
+                Duration timeToLive = parseDays(trimmed);
+                for (CacheArtifact artifact : CacheArtifact.values()) {
+                    timesToLive.put(artifact, timeToLive);
+                }
+            } else {
+                CacheArtifact artifact = CacheArtifact.valueOf(trimmed.substring(0, separator).trim().toUpperCase(Locale.ROOT));
+                timesToLive.put(artifact, parseDays(trimmed.substring(separator + 1).trim()));
+            }
+        }
+        return new CachePolicy(timesToLive);
+    }
+
+    private static Duration parseDays(String days) {
+        try {
+            return Duration.ofDays(Long.parseLong(days));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number of days \"" + days + "\"", e);
+        }
+    }
+
+    /**
+     * @return the time to live or null if the artifact never expires
+     */
+    public Duration getTimeToLive(CacheArtifact artifact) {
+        return timesToLive.get(artifact);
+    }
+
+    /**
+     * @param lastModified time the artifact has been cached, null if unknown
+     * @return true if the artifact has to be loaded again
+     */
+    public boolean isStale(CacheArtifact artifact, Instant lastModified, Instant now) {
+        Duration timeToLive = timesToLive.get(artifact);
+        if (timeToLive == null || lastModified == null) return false;
+        return lastModified.plus(timeToLive).isBefore(now);
+    }
+
+    @Override
+    public String toString() {
+        return timesToLive.isEmpty() ? "unlimited" : timesToLive.toString();
+    }
+
+}
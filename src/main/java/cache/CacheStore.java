@@ -0,0 +1,34 @@
+package cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * Storage for the details loaded for each security, so that they have to be fetched from the providers only once.
+ */
+public interface CacheStore extends Closeable {
+
+    /**
+     * @return the cached content or null if nothing is cached for this security and artifact
+     */
+    String read(String isin, CacheArtifact artifact) throws IOException;
+
+    void write(String isin, CacheArtifact artifact, String content) throws IOException;
+
+    /**
+     * @return the time the artifact has been written or null if nothing is cached for this security and artifact
+     */
+    Instant getLastModified(String isin, CacheArtifact artifact) throws IOException;
+
+    /**
+     * Marks the cached artifact as written now, e.g. after the provider confirmed that it has not changed.
+     * Nothing happens if the artifact is not cached.
+     */
+    void touch(String isin, CacheArtifact artifact) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+}
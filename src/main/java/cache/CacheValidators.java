@@ -0,0 +1,95 @@
+package cache;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * HTTP validators (ETag and Last-Modified) of the response a cached artifact has been loaded from. They are sent
+ * with the next request for the artifact, so the provider can answer "304 Not Modified" instead of the whole page.
+ * <p>
+ * The validators of all artifacts of a security are cached as {@link CacheArtifact#VALIDATORS}, one line per
+ * artifact: artifact, ETag and Last-Modified separated by tabs.
+ */
+public class CacheValidators {
+    public static final CacheValidators NONE = new CacheValidators(null, null);
+    private final String etag;
+    private final String lastModified;
+
+    /**
+     * @param etag         value of the ETag header, null if there is none
+     * @param lastModified value of the Last-Modified header, null if there is none
+     */
+    public CacheValidators(String etag, String lastModified) {
+        this.etag = isEmpty(etag) ? null : etag;
+        this.lastModified = isEmpty(lastModified) ? null : lastModified;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public boolean isEmpty() {
+        return etag == null && lastModified == null;
+    }
+
+    /**
+     * @return If-None-Match and If-Modified-Since headers for a conditional request
+     */
+    public Map<String, String> toRequestHeaders() {
+        if (isEmpty()) return Collections.emptyMap();
+        Map<String, String> headers = new HashMap<>();
+        if (etag != null) headers.put("If-None-Match", etag);
+        if (lastModified != null) headers.put("If-Modified-Since", lastModified);
+        return headers;
+    }
+
+    /**
+     * @param content cached validators of a security, may be null
+     */
+    public static Map<CacheArtifact, CacheValidators> parse(String content) {
+        Map<CacheArtifact, CacheValidators> validators = new EnumMap<>(CacheArtifact.class);
+        if (content == null) return validators;
+        for (String line : content.split("\n")) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 3) continue;
+            try {
+                validators.put(CacheArtifact.valueOf(fields[0]), new CacheValidators(fields[1], fields[2]));
+            } catch (IllegalArgumentException e) {
+                // written by a newer version, ignored
+            }
+        }
+        return validators;
+    }
+
+    public static String format(Map<CacheArtifact, CacheValidators> validators) {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<CacheArtifact, CacheValidators> entry : validators.entrySet()) {
+            if (entry.getValue().isEmpty()) continue;
+            content.append(entry.getKey().name()).append('\t')
+                    .append(toField(entry.getValue().etag)).append('\t')
+                    .append(toField(entry.getValue().lastModified)).append('\n');
+        }
+        return content.toString();
+    }
+
+    private static String toField(String value) {
+        // header values never contain line breaks or tabs, but cached content must not be broken by a faulty server
+        return value == null ? "" : value.replaceAll("[\t\r\n]", " ");
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ETag " + etag + ", Last-Modified " + lastModified;
+    }
+
+}
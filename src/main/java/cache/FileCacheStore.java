@@ -0,0 +1,95 @@
+package cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Cache with one small file per security and artifact, e.g. "IE00BYYHSM20.json" or "IE00BYYHSM20-type.txt".
+ */
+public class FileCacheStore implements CacheStore {
+    private static final Pattern ISIN_PATTERN = Pattern.compile("[A-Z]{2}[A-Z0-9]{9}[0-9]");
+    private final String cachePath;
+
+    public FileCacheStore(String cachePath) {
+        this.cachePath = cachePath;
+        File cacheDir = new File(cachePath);
+        //noinspection ResultOfMethodCallIgnored
+        cacheDir.mkdirs();
+    }
+
+    @Override
+    public String read(String isin, CacheArtifact artifact) throws IOException {
+        try {
+            return Files.readString(getFile(isin, artifact).toPath(), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void write(String isin, CacheArtifact artifact, String content) throws IOException {
+        try (PrintWriter savingCache = new PrintWriter(getFile(isin, artifact), StandardCharsets.UTF_8)) {
+            savingCache.print(content);
+        }
+    }
+
+    @Override
+    public Instant getLastModified(String isin, CacheArtifact artifact) throws IOException {
+        try {
+            return Files.getLastModifiedTime(getFile(isin, artifact).toPath()).toInstant();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void touch(String isin, CacheArtifact artifact) throws IOException {
+        try {
+            Files.setLastModifiedTime(getFile(isin, artifact).toPath(), FileTime.from(Instant.now()));
+        } catch (NoSuchFileException e) {
+            // nothing cached
+        }
+    }
+
+    /**
+     * @return all cached artifacts in the cache directory, grouped by ISIN
+     */
+    public SortedMap<String, Set<CacheArtifact>> findCachedEntries() {
+        SortedMap<String, Set<CacheArtifact>> entries = new TreeMap<>();
+        String[] fileNames = new File(cachePath).list();
+        if (fileNames == null) return entries;
+        // longer suffixes first, ".txt" would match "-type.txt" as well
+        List<CacheArtifact> artifacts = new ArrayList<>(Arrays.asList(CacheArtifact.values()));
+        artifacts.sort(Comparator.comparingInt((CacheArtifact artifact) -> artifact.getFileSuffix().length()).reversed());
+        for (String fileName : fileNames) {
+            for (CacheArtifact artifact : artifacts) {
+                if (fileName.endsWith(artifact.getFileSuffix())) {
+                    String isin = fileName.substring(0, fileName.length() - artifact.getFileSuffix().length());
+                    if (ISIN_PATTERN.matcher(isin).matches()) {
+                        entries.computeIfAbsent(isin, key -> EnumSet.noneOf(CacheArtifact.class)).add(artifact);
+                    }
+                    break;
+                }
+            }
+        }
+        return entries;
+    }
+
+    File getFile(String isin, CacheArtifact artifact) {
+        return new File(cachePath, artifact.getFileName(isin));
+    }
+
+    @Override
+    public String toString() {
+        return cachePath;
+    }
+
+}
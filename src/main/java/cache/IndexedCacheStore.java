@@ -0,0 +1,290 @@
+package cache;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Cache with all artifacts of all securities in one append-only data file plus an index from ISIN and artifact to the
+ * position of the latest record in that file. This replaces up to four small files per security by two files.
+ * <p>
+ * The data file is memory-mapped when the store is opened, records written later are read through the file channel.
+ * Updating an artifact appends a new record; the index always points to the latest one. The index is written when the
+ * store is closed; records behind the indexed part of the data file (e.g. after a crash) are recovered by scanning.
+ * <p>
+ * Record layout: isin length (short), isin (UTF-8), artifact code (byte), timestamp (long), content length (int), content (UTF-8)
+ */
+public class IndexedCacheStore implements CacheStore {
+    public static final String DATA_FILE_NAME = "security-details.dat";
+    public static final String INDEX_FILE_NAME = "security-details.idx";
+    private static final Logger logger = Logger.getLogger(IndexedCacheStore.class.getCanonicalName());
+    private static final int DATA_MAGIC = 0x50505344;
+    private static final int INDEX_MAGIC = 0x50505349;
+    private static final int DATA_HEADER_LENGTH = Integer.BYTES;
+    private final Path dataFile;
+    private final Path indexFile;
+    private final FileChannel channel;
+    private final Map<String, Long> recordOffsets = new ConcurrentHashMap<>();
+    private final MappedByteBuffer mappedData;
+    private final long mappedLength;
+    private long dataLength;
+    private boolean indexChanged;
+
+    public IndexedCacheStore(String cachePath) throws IOException {
+        Files.createDirectories(Paths.get(cachePath));
+        dataFile = Paths.get(cachePath, DATA_FILE_NAME);
+        indexFile = Paths.get(cachePath, INDEX_FILE_NAME);
+        channel = FileChannel.open(dataFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        dataLength = channel.size();
+        if (dataLength == 0) {
+            writeFully(ByteBuffer.allocate(DATA_HEADER_LENGTH).putInt(DATA_MAGIC).flip(), 0);
+            dataLength = DATA_HEADER_LENGTH;
+        } else if (dataLength < DATA_HEADER_LENGTH || readBytes(0, DATA_HEADER_LENGTH).getInt() != DATA_MAGIC) {
+            channel.close();
+            throw new IOException(dataFile + " is no cache data file");
+        }
+        long indexedLength = loadIndex();
+        dataLength = recoverRecords(indexedLength);
+        if (dataLength <= Integer.MAX_VALUE) {
+            mappedData = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataLength);
+            mappedLength = dataLength;
+        } else {
+            mappedData = null;
+            mappedLength = 0;
+        }
+        logger.fine("Opened " + dataFile + " with " + recordOffsets.size() + " entries");
+    }
+
+    @Override
+    public String read(String isin, CacheArtifact artifact) throws IOException {
+        Long offset = recordOffsets.get(getKey(isin, artifact));
+        if (offset == null) return null;
+        return readRecord(offset).content;
+    }
+
+    @Override
+    public void write(String isin, CacheArtifact artifact, String content) throws IOException {
+        write(isin, artifact, content, Instant.now());
+    }
+
+    @Override
+    public Instant getLastModified(String isin, CacheArtifact artifact) throws IOException {
+        Long offset = recordOffsets.get(getKey(isin, artifact));
+        if (offset == null) return null;
+        int isinLength = readBytes(offset, Short.BYTES).getShort();
+        return Instant.ofEpochMilli(readRecordHeader(offset, isinLength).timestamp);
+    }
+
+    /**
+     * Overwrites the timestamp of the latest record in place, the content is not written again.
+     */
+    @Override
+    public synchronized void touch(String isin, CacheArtifact artifact) throws IOException {
+        Long offset = recordOffsets.get(getKey(isin, artifact));
+        if (offset == null) return;
+        int isinLength = readBytes(offset, Short.BYTES).getShort();
+        long timestampPosition = offset + Short.BYTES + isinLength + Byte.BYTES;
+        writeFully(ByteBuffer.allocate(Long.BYTES).putLong(System.currentTimeMillis()).flip(), timestampPosition);
+    }
+
+    private synchronized void write(String isin, CacheArtifact artifact, String content, Instant timestamp) throws IOException {
+        byte[] isinBytes = isin.getBytes(StandardCharsets.UTF_8);
+        byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(getHeaderLength(isinBytes.length) + contentBytes.length);
+        record.putShort((short) isinBytes.length)
+                .put(isinBytes)
+                .put(artifact.getCode())
+                .putLong(timestamp.toEpochMilli())
+                .putInt(contentBytes.length)
+                .put(contentBytes)
+                .flip();
+        writeFully(record, dataLength);
+        recordOffsets.put(getKey(isin, artifact), dataLength);
+        dataLength += record.limit();
+        indexChanged = true;
+    }
+
+    /**
+     * Imports all artifacts of the per-file cache which are not contained in this store yet. The time a file has
+     * been written is kept, so imported artifacts expire like the files would have.
+     *
+     * @return number of imported artifacts
+     */
+    public int importFrom(FileCacheStore fileCacheStore) throws IOException {
+        int importedCount = 0;
+        for (Map.Entry<String, Set<CacheArtifact>> entry : fileCacheStore.findCachedEntries().entrySet()) {
+            String isin = entry.getKey();
+            for (CacheArtifact artifact : entry.getValue()) {
+                if (recordOffsets.containsKey(getKey(isin, artifact))) continue;
+                String content = fileCacheStore.read(isin, artifact);
+                Instant lastModified = fileCacheStore.getLastModified(isin, artifact);
+                if (content != null && lastModified != null) {
+                    write(isin, artifact, content, lastModified);
+                    importedCount++;
+                }
+            }
+        }
+        return importedCount;
+    }
+
+    int size() {
+        return recordOffsets.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) return;
+        channel.force(false);
+        if (indexChanged || !Files.exists(indexFile)) {
+            writeIndex();
+        }
+        channel.close();
+    }
+
+    private long loadIndex() throws IOException {
+        if (!Files.exists(indexFile)) return DATA_HEADER_LENGTH;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+            if (input.readInt() != INDEX_MAGIC) throw new IOException("unknown format");
+            long indexedLength = input.readLong();
+            if (indexedLength > dataLength) throw new IOException("index is newer than data file");
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = input.readUTF();
+                recordOffsets.put(key, input.readLong());
+            }
+            return indexedLength;
+        } catch (IOException e) {
+            logger.warning("Index " + indexFile + " could not be read, rebuilding it: " + e.getMessage());
+            recordOffsets.clear();
+            indexChanged = true;
+            return DATA_HEADER_LENGTH;
+        }
+    }
+
+    private void writeIndex() throws IOException {
+        Path temporaryIndexFile = indexFile.resolveSibling(INDEX_FILE_NAME + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryIndexFile)))) {
+            output.writeInt(INDEX_MAGIC);
+            output.writeLong(dataLength);
+            output.writeInt(recordOffsets.size());
+            for (Map.Entry<String, Long> entry : recordOffsets.entrySet()) {
+                output.writeUTF(entry.getKey());
+                output.writeLong(entry.getValue());
+            }
+        }
+        Files.move(temporaryIndexFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        indexChanged = false;
+    }
+
+    /**
+     * Adds all records behind the indexed part of the data file to the index. An incomplete record at the end,
+     * e.g. from an interrupted run, is cut off.
+     *
+     * @return length of the data file containing only complete records
+     */
+    private long recoverRecords(long position) throws IOException {
+        while (position < dataLength) {
+            if (position + Short.BYTES > dataLength) break;
+            int isinLength = readBytes(position, Short.BYTES).getShort();
+            int headerLength = getHeaderLength(isinLength);
+            if (position + headerLength > dataLength) break;
+            Record record;
+            try {
+                record = readRecordHeader(position, isinLength);
+            } catch (IOException e) {
+                // a damaged record, e.g. with an unknown artifact code
+                break;
+            }
+            long recordEnd = position + headerLength + record.contentLength;
+            if (recordEnd > dataLength) break;
+            recordOffsets.put(getKey(record.isin, record.artifact), position);
+            indexChanged = true;
+            position = recordEnd;
+        }
+        if (position < dataLength) {
+            logger.warning("Cutting off incomplete record at position " + position + " of " + dataFile);
+            channel.truncate(position);
+            indexChanged = true;
+        }
+        return position;
+    }
+
+    private Record readRecord(long offset) throws IOException {
+        int isinLength = readBytes(offset, Short.BYTES).getShort();
+        Record record = readRecordHeader(offset, isinLength);
+        ByteBuffer content = readBytes(offset + getHeaderLength(isinLength), record.contentLength);
+        record.content = StandardCharsets.UTF_8.decode(content).toString();
+        return record;
+    }
+
+    private Record readRecordHeader(long offset, int isinLength) throws IOException {
+        ByteBuffer header = readBytes(offset + Short.BYTES, getHeaderLength(isinLength) - Short.BYTES);
+        byte[] isinBytes = new byte[isinLength];
+        header.get(isinBytes);
+        Record record = new Record();
+        record.isin = new String(isinBytes, StandardCharsets.UTF_8);
+        byte artifactCode = header.get();
+        record.artifact = CacheArtifact.fromCode(artifactCode);
+        if (record.artifact == null) {
+            throw new IOException("Unknown artifact code " + artifactCode + " at position " + offset + " of " + dataFile);
+        }
+        record.timestamp = header.getLong();
+        record.contentLength = header.getInt();
+        return record;
+    }
+
+    private ByteBuffer readBytes(long position, int length) throws IOException {
+        if (mappedData != null && position + length <= mappedLength) {
+            ByteBuffer view = mappedData.duplicate();
+            view.position((int) position).limit((int) (position + length));
+            return view.slice();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of " + dataFile + " at position " + position);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static int getHeaderLength(int isinLength) {
+        return Short.BYTES + isinLength + Byte.BYTES + Long.BYTES + Integer.BYTES;
+    }
+
+    private static String getKey(String isin, CacheArtifact artifact) {
+        return isin + "/" + artifact.name();
+    }
+
+    @Override
+    public String toString() {
+        return dataFile.toString();
+    }
+
+    private static class Record {
+        String isin;
+        CacheArtifact artifact;
+        long timestamp;
+        int contentLength;
+        String content;
+    }
+
+}
@@ -3,5 +3,7 @@ package constants;
 public class PathConstants {
     public static final String BASE_TARGET_PATH = System.getProperty("user.dir") + "/target/";
     public static final String CACHE_FILE_NAME = "do_not_delete_needed_for_caching.json";
+    public static final String SIMILAR_NAMES_CACHE_FILE_NAME = "similar_names_cache.json";
+    public static final String INDUSTRY_MATCH_CACHE_FILE_NAME = "industry_match_cache.json";
     public static final String CACHE_PATH = BASE_TARGET_PATH + "cache/";
 }
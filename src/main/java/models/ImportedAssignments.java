@@ -0,0 +1,89 @@
+package models;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Assignments imported into one taxonomy, each a triple of classification, ISIN of the security and weight. They keep
+ * the order in which they have been added like the JSON array they are read from and written to, but whether a triple
+ * has been imported already is checked by its hash instead of comparing it to all others.
+ */
+public class ImportedAssignments {
+    private static final String WEIGHT = "weight";
+    private static final String ISIN = "isin";
+    private static final String CLASSIFICATION = "classification";
+    private final List<Assignment> assignments = new ArrayList<>();
+    private final Set<Assignment> assignmentSet = new HashSet<>();
+
+    /**
+     * @param json array of objects with the properties "classification", "isin" and "weight"
+     */
+    public static ImportedAssignments fromJson(JsonArray json) {
+        ImportedAssignments importedAssignments = new ImportedAssignments();
+        for (JsonElement element : json) {
+            JsonObject assignment = element.getAsJsonObject();
+            importedAssignments.add(assignment.get(CLASSIFICATION).getAsString(), assignment.get(ISIN).getAsString(),
+                    assignment.get(WEIGHT).getAsInt());
+        }
+        return importedAssignments;
+    }
+
+    public void add(String classification, String isin, int weight) {
+        Assignment assignment = new Assignment(classification, isin, weight);
+        assignments.add(assignment);
+        assignmentSet.add(assignment);
+    }
+
+    public boolean contains(String classification, String isin, int weight) {
+        return assignmentSet.contains(new Assignment(classification, isin, weight));
+    }
+
+    public int size() {
+        return assignments.size();
+    }
+
+    public JsonArray toJson() {
+        JsonArray json = new JsonArray(assignments.size());
+        for (Assignment assignment : assignments) {
+            JsonObject security = new JsonObject();
+            security.addProperty(WEIGHT, assignment.weight);
+            security.addProperty(ISIN, assignment.isin);
+            security.addProperty(CLASSIFICATION, assignment.classification);
+            json.add(security);
+        }
+        return json;
+    }
+
+    private static final class Assignment {
+        final String classification;
+        final String isin;
+        final int weight;
+
+        Assignment(String classification, String isin, int weight) {
+            this.classification = classification;
+            this.isin = isin;
+            this.weight = weight;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Assignment)) return false;
+            Assignment that = (Assignment) o;
+            return weight == that.weight && classification.equals(that.classification) && isin.equals(that.isin);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(classification, isin, weight);
+        }
+    }
+
+}
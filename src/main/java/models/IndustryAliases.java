@@ -0,0 +1,114 @@
+package models;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Industry names of the taxonomy "Branchen (GICS)" to use instead of the industry names given for a security, and
+ * industries to use for all industries of certain securities (by ISIN). An empty industry name means that the
+ * industry is not assigned at all, e.g. for "diverse Branchen". The defaults are read from the resource
+ * "industry-aliases.json", a file with the same structure may add or change entries.
+ */
+public class IndustryAliases {
+    public static final String DEFAULT_RESOURCE = "/industry-aliases.json";
+    private static final String ALIASES = "aliases";
+    private static final String ISIN_OVERRIDES = "isinOverrides";
+    private final Map<String, String> industryByAlias;
+    private final Map<String, String> industryByIsin;
+
+    private IndustryAliases(Map<String, String> industryByAlias, Map<String, String> industryByIsin) {
+        this.industryByAlias = Map.copyOf(industryByAlias);
+        this.industryByIsin = Map.copyOf(industryByIsin);
+    }
+
+    /**
+     * @return the aliases read from the resource {@link #DEFAULT_RESOURCE}, read only once
+     */
+    public static IndustryAliases getDefault() {
+        return DefaultHolder.DEFAULT;
+    }
+
+    /**
+     * @param fileName JSON file with aliases and ISIN overrides added to or replacing the defaults, may be null
+     */
+    public static IndustryAliases load(String fileName) throws IOException {
+        Map<String, String> industryByAlias = new HashMap<>();
+        Map<String, String> industryByIsin = new HashMap<>();
+        try (InputStream defaults = IndustryAliases.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (defaults == null) throw new IOException("Resource " + DEFAULT_RESOURCE + " not found");
+            read(new InputStreamReader(defaults, StandardCharsets.UTF_8), industryByAlias, industryByIsin);
+        }
+        if (fileName != null) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+                read(reader, industryByAlias, industryByIsin);
+            }
+        }
+        return new IndustryAliases(industryByAlias, industryByIsin);
+    }
+
+    private static void read(Reader reader, Map<String, String> industryByAlias, Map<String, String> industryByIsin) throws IOException {
+        try {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            if (json.has(ALIASES)) {
+                for (Map.Entry<String, JsonElement> alias : json.getAsJsonObject(ALIASES).entrySet()) {
+                    industryByAlias.put(alias.getKey(), alias.getValue().getAsString());
+                }
+            }
+            if (json.has(ISIN_OVERRIDES)) {
+                for (Map.Entry<String, JsonElement> override : json.getAsJsonObject(ISIN_OVERRIDES).entrySet()) {
+                    industryByIsin.put(override.getKey().toUpperCase(Locale.ROOT), override.getValue().getAsString());
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid industry aliases: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the industry to use instead of the given one or the given industry name if there is no alias
+     */
+    public String getIndustryName(String industryNameFromSecurity) {
+        return industryByAlias.getOrDefault(industryNameFromSecurity, industryNameFromSecurity);
+    }
+
+    /**
+     * @return the industry to use for all industries of the security with this ISIN (e.g. "Rückversicherungen" for
+     * Hannover Rück, which is classified as "Versicherung"), or like {@link #getIndustryName(String)} if there is no
+     * override for the ISIN
+     */
+    public String getIndustryName(String isin, String industryNameFromSecurity) {
+        String override = isin == null ? null : industryByIsin.get(isin.toUpperCase(Locale.ROOT));
+        return override == null ? getIndustryName(industryNameFromSecurity) : override;
+    }
+
+    public int size() {
+        return industryByAlias.size() + industryByIsin.size();
+    }
+
+    private static class DefaultHolder {
+        static final IndustryAliases DEFAULT = loadDefault();
+
+        private static IndustryAliases loadDefault() {
+            try {
+                return load(null);
+            } catch (IOException e) {
+                // the resource is part of the application
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+}
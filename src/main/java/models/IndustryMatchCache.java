@@ -0,0 +1,152 @@
+package models;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Cache of the best matching industry of the taxonomy "Branchen (GICS)" for each (optimized) industry name of a
+ * security. The matches depend on the industries of the taxonomy and their order, so they are only kept as long as
+ * the fingerprint of these industries stays the same.
+ */
+public class IndustryMatchCache {
+    private static final Logger logger = Logger.getLogger(IndustryMatchCache.class.getCanonicalName());
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String MATCHES = "matches";
+    private static final String INDUSTRY = "industry";
+    private static final String MATCH = "match";
+    private static final String DISTANCE = "distance";
+    private final String fullFileName;
+    private String fingerprint = "";
+    private final Map<String, Match> matchesByIndustry = new LinkedHashMap<>();
+
+    /**
+     * Cache kept in memory only.
+     */
+    public IndustryMatchCache() {
+        this(null);
+    }
+
+    public IndustryMatchCache(String fullFileName) {
+        this.fullFileName = fullFileName;
+        if (fullFileName != null) {
+            read();
+        }
+    }
+
+    private void read() {
+        try (FileReader reader = new FileReader(fullFileName, StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            fingerprint = json.get(FINGERPRINT).getAsString();
+            for (JsonElement element : json.getAsJsonArray(MATCHES)) {
+                JsonObject match = element.getAsJsonObject();
+                matchesByIndustry.put(match.get(INDUSTRY).getAsString(), new Match(match.get(MATCH).getAsString(), match.get(DISTANCE).getAsInt()));
+            }
+        } catch (Exception e) {
+            logger.warning("Cache of industry matches could not be read: " + e.getMessage());
+            fingerprint = "";
+            matchesByIndustry.clear();
+        }
+    }
+
+    /**
+     * Sets the industries of the taxonomy all matches refer to. If they differ from the industries of the cached
+     * matches, these are dropped. Each industry of the taxonomy is its own best match.
+     *
+     * @param industryNames names of the industries of the taxonomy in document order
+     */
+    public synchronized void useIndustries(List<String> industryNames) {
+        String newFingerprint = getFingerprint(industryNames);
+        if (!newFingerprint.equals(fingerprint)) {
+            logger.info("Industries of the taxonomy changed, cached industry matches are not used");
+            fingerprint = newFingerprint;
+            matchesByIndustry.clear();
+        }
+        for (String industryName : industryNames) {
+            matchesByIndustry.putIfAbsent(industryName, new Match(industryName, 0));
+        }
+    }
+
+    private static String getFingerprint(List<String> industryNames) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String industryName : industryNames) {
+                digest.update(industryName.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) '\n');
+            }
+            StringBuilder fingerprint = new StringBuilder();
+            for (byte b : digest.digest()) {
+                fingerprint.append(String.format("%02x", b));
+            }
+            return fingerprint.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the best match of the industry or null if it has not been matched yet
+     */
+    public synchronized Match get(String industryName) {
+        return matchesByIndustry.get(industryName);
+    }
+
+    public synchronized void put(String industryName, String matchingIndustryName, int distance) {
+        matchesByIndustry.put(industryName, new Match(matchingIndustryName, distance));
+    }
+
+    public synchronized int size() {
+        return matchesByIndustry.size();
+    }
+
+    public synchronized JsonObject toJson() {
+        JsonArray matches = new JsonArray(matchesByIndustry.size());
+        for (Map.Entry<String, Match> entry : matchesByIndustry.entrySet()) {
+            JsonObject match = new JsonObject();
+            match.addProperty(INDUSTRY, entry.getKey());
+            match.addProperty(MATCH, entry.getValue().industryName);
+            match.addProperty(DISTANCE, entry.getValue().distance);
+            matches.add(match);
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty(FINGERPRINT, fingerprint);
+        json.add(MATCHES, matches);
+        return json;
+    }
+
+    public void save() {
+        if (fullFileName == null) return;
+        try (PrintWriter savingMatches = new PrintWriter(fullFileName, StandardCharsets.UTF_8)) {
+            savingMatches.print(toJson() + "\n");
+        } catch (IOException e) {
+            logger.warning("Cache of industry matches could not be saved: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Industry of the taxonomy and its Levenshtein distance to the matched industry name.
+     */
+    public static class Match {
+        public final String industryName;
+        public final int distance;
+
+        public Match(String industryName, int distance) {
+            this.industryName = industryName;
+            this.distance = distance;
+        }
+    }
+
+}
@@ -15,49 +15,64 @@ import java.util.logging.Logger;
  */
 public class SecurityDetailsCache {
     private static final Logger logger = Logger.getLogger(SecurityDetailsCache.class.getCanonicalName());
+    private static final String COUNTRIES = "countries";
+    private static final String INDUSTRIES = "industries";
+    private static final String TOP_TEN = "topten";
     private final String fullFileName;
     private JsonObject cacheFileJson;
+    private ImportedAssignments cachedCountries = new ImportedAssignments();
+    private ImportedAssignments cachedIndustries = new ImportedAssignments();
+    private ImportedAssignments cachedTopTen = new ImportedAssignments();
 
     public SecurityDetailsCache(String fullFileName) {
         this.fullFileName = fullFileName;
         try {
             // if there is an entry in the cache-file, nothing is imported !!! (in PortfolioDucumentService)
             cacheFileJson = JsonParser.parseReader(new FileReader(fullFileName, StandardCharsets.UTF_8)).getAsJsonObject();
+            cachedCountries = readImportedAssignments(COUNTRIES);
+            cachedIndustries = readImportedAssignments(INDUSTRIES);
+            cachedTopTen = readImportedAssignments(TOP_TEN);
         } catch (Exception e) {
             logger.warning("Cache of security details could not be read: " + e.getMessage());
             cacheFileJson = new JsonObject();
-            setCachedIndustries(new JsonArray());
-            setCachedCountries(new JsonArray());
-            setCachedTopTen(new JsonArray());
         }
     }
 
+    private ImportedAssignments readImportedAssignments(String memberName) {
+        JsonArray json = cacheFileJson.getAsJsonArray(memberName);
+        return json == null ? new ImportedAssignments() : ImportedAssignments.fromJson(json);
+    }
+
     public JsonObject getCacheFileJson() {
+        // members already read from the file keep their position
+        cacheFileJson.add(INDUSTRIES, cachedIndustries.toJson());
+        cacheFileJson.add(COUNTRIES, cachedCountries.toJson());
+        cacheFileJson.add(TOP_TEN, cachedTopTen.toJson());
         return cacheFileJson;
     }
 
     public JsonArray getCachedCountries() {
-        return cacheFileJson.get("countries").getAsJsonArray();
+        return cachedCountries.toJson();
     }
 
     public JsonArray getCachedIndustries() {
-        return cacheFileJson.get("industries").getAsJsonArray();
+        return cachedIndustries.toJson();
     }
 
     public JsonArray getCachedTopTen() {
-        return cacheFileJson.get("topten").getAsJsonArray();
+        return cachedTopTen.toJson();
     }
 
-    public void setCachedCountries(JsonArray cachedCountries) {
-        cacheFileJson.add("countries", cachedCountries);
+    public void setImportedCountries(ImportedAssignments importedCountries) {
+        cachedCountries = importedCountries;
     }
 
-    public void setCachedIndustries(JsonArray cachedIndustries) {
-        cacheFileJson.add("industries", cachedIndustries);
+    public void setImportedIndustries(ImportedAssignments importedIndustries) {
+        cachedIndustries = importedIndustries;
     }
 
-    public void setCachedTopTen(JsonArray cachedTopTen) {
-        cacheFileJson.add("topten", cachedTopTen);
+    public void setImportedTopTen(ImportedAssignments importedTopTen) {
+        cachedTopTen = importedTopTen;
     }
 
     public void save() {
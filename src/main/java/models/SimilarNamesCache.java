@@ -0,0 +1,118 @@
+package models;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Cache of already compared pairs of names (holdings, countries, industries) and whether they are similar. It holds at
+ * most the given number of pairs, the least recently used ones are dropped first. Pairs are identified by their lower
+ * case names independent of their order, as this is all the comparison depends on.
+ */
+public class SimilarNamesCache {
+    private static final Logger logger = Logger.getLogger(SimilarNamesCache.class.getCanonicalName());
+    public static final int DEFAULT_MAXIMUM_SIZE = 100_000;
+    // to be increased whenever the rules for similar names change, so results of older versions are not used
+    private static final int VERSION = 1;
+    private static final String VERSION_MEMBER = "version";
+    private static final String PAIRS = "pairs";
+    private static final char SEPARATOR = '\u0000';
+    private final String fullFileName;
+    private final int maximumSize;
+    private final Map<String, Boolean> similarByPair;
+
+    /**
+     * Cache kept in memory only.
+     */
+    public SimilarNamesCache(int maximumSize) {
+        this(null, maximumSize);
+    }
+
+    public SimilarNamesCache(String fullFileName, int maximumSize) {
+        this.fullFileName = fullFileName;
+        this.maximumSize = maximumSize;
+        this.similarByPair = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > SimilarNamesCache.this.maximumSize;
+            }
+        };
+        if (fullFileName != null) {
+            read();
+        }
+    }
+
+    private void read() {
+        try (FileReader reader = new FileReader(fullFileName, StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            if (json.get(VERSION_MEMBER).getAsInt() != VERSION) {
+                logger.info("Cache of similar names has been created by another version and is not used");
+                return;
+            }
+            // the least recently used pair comes first
+            for (JsonElement element : json.getAsJsonArray(PAIRS)) {
+                JsonArray pair = element.getAsJsonArray();
+                similarByPair.put(pair.get(0).getAsString() + SEPARATOR + pair.get(1).getAsString(), pair.get(2).getAsBoolean());
+            }
+        } catch (Exception e) {
+            logger.warning("Cache of similar names could not be read: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return whether the names are similar or null if the pair has not been compared yet
+     */
+    public synchronized Boolean get(String one, String oneLowerCase, String two, String twoLowerCase) {
+        return similarByPair.get(getKey(one, oneLowerCase, two, twoLowerCase));
+    }
+
+    public synchronized void put(String one, String oneLowerCase, String two, String twoLowerCase, boolean similar) {
+        similarByPair.put(getKey(one, oneLowerCase, two, twoLowerCase), similar);
+    }
+
+    public synchronized int size() {
+        return similarByPair.size();
+    }
+
+    private static String getKey(String one, String oneLowerCase, String two, String twoLowerCase) {
+        // the positions in the lower case name do not match the original name, so the original name makes the difference
+        String first = oneLowerCase.length() == one.length() ? oneLowerCase : one;
+        String second = twoLowerCase.length() == two.length() ? twoLowerCase : two;
+        return first.compareTo(second) <= 0 ? first + SEPARATOR + second : second + SEPARATOR + first;
+    }
+
+    public synchronized JsonObject toJson() {
+        JsonArray pairs = new JsonArray(similarByPair.size());
+        for (Map.Entry<String, Boolean> entry : similarByPair.entrySet()) {
+            int separator = entry.getKey().indexOf(SEPARATOR);
+            JsonArray pair = new JsonArray(3);
+            pair.add(entry.getKey().substring(0, separator));
+            pair.add(entry.getKey().substring(separator + 1));
+            pair.add(entry.getValue());
+            pairs.add(pair);
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty(VERSION_MEMBER, VERSION);
+        json.add(PAIRS, pairs);
+        return json;
+    }
+
+    public void save() {
+        if (fullFileName == null) return;
+        try (PrintWriter savingPairs = new PrintWriter(fullFileName, StandardCharsets.UTF_8)) {
+            savingPairs.print(toJson() + "\n");
+        } catch (IOException e) {
+            logger.warning("Cache of similar names could not be saved: " + e.getMessage());
+        }
+    }
+
+}
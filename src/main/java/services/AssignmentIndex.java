@@ -0,0 +1,107 @@
+package services;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import xml.XmlHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Assignments of the classifications of one taxonomy by the index of the assigned security as used in the reference
+ * "securities/security[N]" (starting with 1). Each classification is indexed on its first lookup, so its references
+ * are parsed only once; assignments added or removed through this index keep it up to date.
+ */
+class AssignmentIndex {
+    private static final String SECURITY_REFERENCE = "securities/security";
+    private final XmlHelper xmlHelper;
+    private final Map<Node, Map<Integer, List<Element>>> assignmentsByClassification = new HashMap<>();
+
+    AssignmentIndex(XmlHelper xmlHelper) {
+        this.xmlHelper = xmlHelper;
+    }
+
+    /**
+     * @return a copy of the assignments of the security in document order, empty if there is none
+     */
+    List<Element> getAssignments(Node classification, int securityIndex) {
+        List<Element> assignments = getIndex(classification).get(securityIndex);
+
+        return assignments == null ? new ArrayList<>() : new ArrayList<>(assignments);
+    }
+
+    /**
+     * @return the first assignment of the security or null
+     */
+    Element getAssignment(Node classification, int securityIndex) {
+        List<Element> assignments = getIndex(classification).get(securityIndex);
+
+        return assignments == null || assignments.isEmpty() ? null : assignments.get(0);
+    }
+
+    /**
+     * Registers an assignment which has just been appended to the assignments of the classification.
+     */
+    void add(Node classification, int securityIndex, Element assignment) {
+        Map<Integer, List<Element>> index = assignmentsByClassification.get(classification);
+        // a classification not indexed yet finds the assignment on its first lookup
+        if (index != null) {
+            index.computeIfAbsent(securityIndex, key -> new ArrayList<>()).add(assignment);
+        }
+    }
+
+    /**
+     * Removes the assignment from the document and from this index.
+     */
+    void remove(Node classification, int securityIndex, Element assignment) {
+        assignment.getParentNode().removeChild(assignment);
+        Map<Integer, List<Element>> index = assignmentsByClassification.get(classification);
+        if (index != null && index.containsKey(securityIndex)) {
+            index.get(securityIndex).remove(assignment);
+        }
+    }
+
+    private Map<Integer, List<Element>> getIndex(Node classification) {
+        return assignmentsByClassification.computeIfAbsent(classification, this::indexAssignments);
+    }
+
+    private Map<Integer, List<Element>> indexAssignments(Node classification) {
+        Map<Integer, List<Element>> index = new HashMap<>();
+        Element assignments = xmlHelper.getFirstChildElementWithNodeName(classification, "assignments");
+        if (assignments == null) return index;
+        for (Node child = assignments.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals("assignment")) {
+                int securityIndex = getSecurityIndex(getReference((Element) child));
+                if (securityIndex >= 0) {
+                    index.computeIfAbsent(securityIndex, key -> new ArrayList<>()).add((Element) child);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return the reference of the security assigned or null if something else is assigned
+     */
+    private String getReference(Element assignment) {
+        Element investmentVehicle = xmlHelper.getFirstChildElementWithNodeName(assignment, "investmentVehicle");
+        if (investmentVehicle == null || !investmentVehicle.getAttribute("class").equals("security")) return null;
+        return investmentVehicle.getAttribute("reference");
+    }
+
+    /**
+     * @return the index N of a reference to "securities/security[N]", 1 for the first security, which is
+     * referenced without index, or -1 if the reference contains no index
+     */
+    static int getSecurityIndex(String reference) {
+        if (reference == null || reference.isEmpty()) return -1;
+        if (reference.endsWith(SECURITY_REFERENCE)) return 1;
+        int start = reference.indexOf('[');
+        int end = reference.indexOf(']');
+        if (start < 0 || end < start) return -1;
+        return Integer.parseInt(reference.substring(start + 1, end));
+    }
+
+}
@@ -0,0 +1,72 @@
+package services;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import xml.XmlHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Classifications below an element by their name, built once instead of reading the names of all classifications for
+ * each lookup. Besides the exact name, the names which may be similar are found through a {@link SimilarNameIndex}.
+ * Classifications appended later have to be added, they follow all others in document order.
+ */
+class ClassificationIndex {
+    private final XmlHelper xmlHelper;
+    // the first classification with each name in document order
+    private final List<Element> classifications = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> positionByName = new HashMap<>();
+    private final SimilarNameIndex similarNameIndex = new SimilarNameIndex();
+
+    ClassificationIndex(XmlHelper xmlHelper, Element parent) {
+        this.xmlHelper = xmlHelper;
+        NodeList allClassifications = parent.getElementsByTagName("classification");
+        for (int i = 0; i < allClassifications.getLength(); i++) {
+            add((Element) allClassifications.item(i));
+        }
+    }
+
+    void add(Element classification) {
+        String name = xmlHelper.getChildTextContent(classification, "name");
+        // adjust name for country "USA"
+        if (name.equals("Vereinigte Staaten")) {
+            name = "USA";
+        }
+        if (positionByName.containsKey(name)) return;
+        positionByName.put(name, classifications.size());
+        classifications.add(classification);
+        names.add(name);
+        similarNameIndex.add(name);
+    }
+
+    /**
+     * @return the positions of the classifications which may have a name similar to the given one in document order,
+     * ending with the classification of the same name if there is one
+     */
+    List<Integer> getCandidates(String name) {
+        Integer exactPosition = positionByName.get(name);
+        int end = exactPosition == null ? classifications.size() : exactPosition;
+        List<Integer> candidates = new ArrayList<>();
+        for (String candidateName : similarNameIndex.getCandidates(name)) {
+            int position = positionByName.get(candidateName);
+            if (position < end) candidates.add(position);
+        }
+        candidates.sort(null);
+        if (exactPosition != null) candidates.add(exactPosition);
+        return candidates;
+    }
+
+    Element getClassification(int position) {
+        return classifications.get(position);
+    }
+
+    String getName(int position) {
+        return names.get(position);
+    }
+
+}
@@ -0,0 +1,117 @@
+package services;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Reduces the __NEXT_DATA__ JSON of an onvista page (hundreds of KB) to the few values used for classification:
+ * holdings, branch and country breakdowns.
+ * The paths of these values are kept (e.g. "props.pageProps.data.breakdowns"), so the compact JSON is read exactly
+ * like the full page JSON.
+ */
+public class CompactSecurityJson {
+    static final String FORMAT_PROPERTY = "compactFormat";
+    static final int FORMAT_VERSION = 1;
+
+    private CompactSecurityJson() {
+    }
+
+    /**
+     * @return true if the JSON has been reduced by {@link #compact(JsonObject)} already
+     */
+    public static boolean isCompact(JsonObject rootNode) {
+        JsonElement format = rootNode.get(FORMAT_PROPERTY);
+        return format != null && format.isJsonPrimitive() && format.getAsInt() == FORMAT_VERSION;
+    }
+
+    /**
+     * @param rootNode full __NEXT_DATA__ JSON of an onvista page
+     * @return new JSON containing only the values needed for classification
+     */
+    public static JsonObject compact(JsonObject rootNode) {
+        if (isCompact(rootNode)) return rootNode;
+        JsonObject compactData = new JsonObject();
+        JsonObject data = getObject(getObject(getObject(rootNode, "props"), "pageProps"), "data");
+        if (data != null) {
+            JsonObject breakdowns = getObject(data, "breakdowns");
+            if (breakdowns != null) {
+                JsonObject compactBreakdowns = new JsonObject();
+                JsonObject fundsHoldingList = getObject(breakdowns, "fundsHoldingList");
+                if (fundsHoldingList != null) {
+                    compactBreakdowns.add("fundsHoldingList", compactHoldings(fundsHoldingList));
+                }
+                copyBreakdown(breakdowns, "branchBreakdown", compactBreakdowns);
+                copyBreakdown(breakdowns, "countryBreakdown", compactBreakdowns);
+                compactData.add("breakdowns", compactBreakdowns);
+            }
+        }
+        JsonObject pageProps = new JsonObject();
+        pageProps.add("data", compactData);
+        JsonObject props = new JsonObject();
+        props.add("pageProps", pageProps);
+        JsonObject compactRootNode = new JsonObject();
+        compactRootNode.addProperty(FORMAT_PROPERTY, FORMAT_VERSION);
+        compactRootNode.add("props", props);
+        return compactRootNode;
+    }
+
+    private static JsonObject compactHoldings(JsonObject fundsHoldingList) {
+        JsonArray compactList = new JsonArray();
+        JsonArray list = getArray(fundsHoldingList, "list");
+        if (list != null) {
+            for (JsonElement holding : list) {
+                if (!holding.isJsonObject()) continue;
+                JsonObject compactHolding = new JsonObject();
+                JsonObject instrument = getObject(holding.getAsJsonObject(), "instrument");
+                if (instrument != null) {
+                    JsonObject compactInstrument = new JsonObject();
+                    copyProperty(instrument, "name", compactInstrument);
+                    compactHolding.add("instrument", compactInstrument);
+                }
+                copyProperty(holding.getAsJsonObject(), "investmentPct", compactHolding);
+                compactList.add(compactHolding);
+            }
+        }
+        JsonObject compactHoldingList = new JsonObject();
+        compactHoldingList.add("list", compactList);
+        return compactHoldingList;
+    }
+
+    private static void copyBreakdown(JsonObject breakdowns, String breakdownName, JsonObject compactBreakdowns) {
+        JsonObject breakdown = getObject(breakdowns, breakdownName);
+        if (breakdown == null) return;
+        JsonObject compactBreakdown = new JsonObject();
+        copyProperty(breakdown, "nameFundsBreakdown", compactBreakdown);
+        JsonArray compactList = new JsonArray();
+        JsonArray list = getArray(breakdown, "list");
+        if (list != null) {
+            for (JsonElement entry : list) {
+                if (!entry.isJsonObject()) continue;
+                JsonObject compactEntry = new JsonObject();
+                copyProperty(entry.getAsJsonObject(), "nameBreakdown", compactEntry);
+                copyProperty(entry.getAsJsonObject(), "investmentPct", compactEntry);
+                compactList.add(compactEntry);
+            }
+        }
+        compactBreakdown.add("list", compactList);
+        compactBreakdowns.add(breakdownName, compactBreakdown);
+    }
+
+    private static void copyProperty(JsonObject source, String propertyName, JsonObject target) {
+        JsonElement value = source.get(propertyName);
+        if (value != null) target.add(propertyName, value);
+    }
+
+    private static JsonObject getObject(JsonObject parent, String memberName) {
+        if (parent == null) return null;
+        JsonElement member = parent.get(memberName);
+        return member != null && member.isJsonObject() ? member.getAsJsonObject() : null;
+    }
+
+    private static JsonArray getArray(JsonObject parent, String memberName) {
+        JsonElement member = parent.get(memberName);
+        return member != null && member.isJsonArray() ? member.getAsJsonArray() : null;
+    }
+
+}
@@ -0,0 +1,112 @@
+package services;
+
+import models.Security;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Holdings of all securities by the name of the holding, built once per run, so the securities holding a stock are
+ * found without probing the holdings of every security for each of its names. Stocks are identified by the names
+ * returned by {@link PortfolioDocumentService#collectAllStockNames}, each with its alternative names.
+ */
+class HoldingIndex {
+    private final TreeMap<String, List<String>> allStockNames;
+    // securities in the order of the portfolio with the percentage of each holding
+    private final Map<String, Map<Security, Integer>> percentagesByHolding = new HashMap<>();
+    private final List<Security> securities = new ArrayList<>();
+    private final Map<Security, Integer> positionBySecurity = new IdentityHashMap<>();
+    private final Map<Security, SimilarNameIndex> holdingNamesBySecurity = new IdentityHashMap<>();
+
+    HoldingIndex(List<Security> allSecurities, TreeMap<String, List<String>> allStockNames) {
+        this.allStockNames = allStockNames;
+        for (Security security : allSecurities) {
+            if (positionBySecurity.containsKey(security)) continue;
+            positionBySecurity.put(security, securities.size());
+            securities.add(security);
+            for (Map.Entry<String, Double> holding : security.getHoldings().entrySet()) {
+                // same rounding as PortfolioDocumentService.getPercentageOfHolding
+                int percentage = (int) Math.round(holding.getValue() * 100.0);
+                percentagesByHolding.computeIfAbsent(holding.getKey(), key -> new LinkedHashMap<>()).put(security, percentage);
+            }
+        }
+    }
+
+    /**
+     * @return the stock name followed by its alternative names
+     */
+    private List<String> getNames(String stockName) {
+        List<String> alternativeNames = allStockNames.get(stockName);
+        if (alternativeNames == null) return Collections.singletonList(stockName);
+        List<String> names = new ArrayList<>(alternativeNames.size() + 1);
+        names.add(stockName);
+        names.addAll(alternativeNames);
+        return names;
+    }
+
+    /**
+     * @return the securities holding the stock by its name or any alternative name in the order of the portfolio
+     */
+    List<Security> findSecurities(String stockName) {
+        TreeSet<Integer> positions = new TreeSet<>();
+        for (String name : getNames(stockName)) {
+            Map<Security, Integer> percentages = percentagesByHolding.get(name);
+            if (percentages == null) continue;
+            for (Security security : percentages.keySet()) {
+                positions.add(positionBySecurity.get(security));
+            }
+        }
+        List<Security> foundSecurities = new ArrayList<>(positions.size());
+        for (int position : positions) {
+            foundSecurities.add(securities.get(position));
+        }
+        return foundSecurities;
+    }
+
+    /**
+     * @return true if the security holds the stock by its name or any alternative name
+     */
+    boolean hasHolding(Security security, String stockName) {
+        for (String name : getNames(stockName)) {
+            Map<Security, Integer> percentages = percentagesByHolding.get(name);
+            if (percentages != null && percentages.containsKey(security)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the percentages of the stock by its name and then its alternative names held by the security
+     */
+    List<Integer> getPercentages(Security security, String stockName) {
+        List<Integer> percentages = new ArrayList<>();
+        for (String name : getNames(stockName)) {
+            Map<Security, Integer> percentagesOfHolding = percentagesByHolding.get(name);
+            if (percentagesOfHolding != null && percentagesOfHolding.containsKey(security)) {
+                percentages.add(percentagesOfHolding.get(security));
+            }
+        }
+        return percentages;
+    }
+
+    /**
+     * @return the holdings of the security which may have a name similar to the given one, see {@link SimilarNameIndex}
+     */
+    List<String> getSimilarHoldingCandidates(Security security, String name) {
+        SimilarNameIndex holdingNames = holdingNamesBySecurity.computeIfAbsent(security, key -> {
+            SimilarNameIndex similarNameIndex = new SimilarNameIndex();
+            for (String holdingName : key.getHoldings().keySet()) {
+                similarNameIndex.add(holdingName);
+            }
+            return similarNameIndex;
+        });
+        return new ArrayList<>(holdingNames.getCandidates(name));
+    }
+
+}
@@ -0,0 +1,308 @@
+package services;
+
+import cache.CacheValidators;
+import org.jsoup.Jsoup;
+import org.jsoup.helper.HttpConnection;
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared access to the remote providers (onvista, parqet) for all securities.
+ * One HttpClient is reused for every request, so connections are kept alive (and multiplexed with HTTP/2)
+ * instead of paying a new TCP and TLS handshake for each lookup.
+ * Requests are throttled per host by a {@link RateLimiter} and retried with exponential backoff and jitter
+ * when the provider is overloaded or returns an incomplete page.
+ */
+public class HttpFetcher {
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(500);
+    private static final Duration MAXIMUM_BACKOFF = Duration.ofSeconds(60);
+    private static final int HTTP_NOT_MODIFIED = 304;
+    // the providers have been queried with jsoup before, so they still get the same User-Agent
+    private static final String USER_AGENT = HttpConnection.DEFAULT_UA;
+    private static final Logger logger = Logger.getLogger(HttpFetcher.class.getCanonicalName());
+    private static final HttpFetcher DEFAULT_INSTANCE = new HttpFetcher();
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final RateLimiter rateLimiter;
+    private final int maxRetries;
+    private final Duration initialBackoff;
+
+    public HttpFetcher() {
+        this(RateLimiter.unlimited(), DEFAULT_MAX_RETRIES, DEFAULT_INITIAL_BACKOFF);
+    }
+
+    /**
+     * @param rateLimiter    limits the requests per host
+     * @param maxRetries     number of additional attempts after a failed request
+     * @param initialBackoff wait time before the first retry, doubled for each further retry
+     */
+    public HttpFetcher(RateLimiter rateLimiter, int maxRetries, Duration initialBackoff) {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, rateLimiter, maxRetries, initialBackoff);
+    }
+
+    public HttpFetcher(Duration connectTimeout, Duration requestTimeout, RateLimiter rateLimiter, int maxRetries, Duration initialBackoff) {
+        this.requestTimeout = requestTimeout;
+        this.rateLimiter = rateLimiter;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.initialBackoff = initialBackoff;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.ALWAYS)
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    /**
+     * @return instance shared by everything not configured explicitly
+     */
+    public static HttpFetcher getDefault() {
+        return DEFAULT_INSTANCE;
+    }
+
+    /**
+     * Sends a GET request and hands the response to the handler. A request is retried if it fails, the provider
+     * is overloaded (HTTP 429 or 5xx) or the handler rejects the body with an IOException, e.g. for a truncated page.
+     */
+    public <T> T fetch(String url, ResponseHandler<T> handler) throws IOException, InterruptedException {
+        return fetch(url, Collections.emptyMap(), handler);
+    }
+
+    /**
+     * Like {@link #fetch(String, ResponseHandler)}, with additional headers sent with the request.
+     */
+    public <T> T fetch(String url, Map<String, String> requestHeaders, ResponseHandler<T> handler) throws IOException, InterruptedException {
+        return fetch(url, requestHeaders, handler, false);
+    }
+
+    /**
+     * @param handleClientErrors if true, responses with a status like 404, which is not retried, are passed to the
+     *                           handler instead of throwing an {@link HttpStatusException}
+     */
+    private <T> T fetch(String url, Map<String, String> requestHeaders, ResponseHandler<T> handler, boolean handleClientErrors) throws IOException, InterruptedException {
+        URI uri = URI.create(url);
+        String host = uri.getHost();
+        int attempt = 0;
+        while (true) {
+            rateLimiter.acquire(host);
+            Duration retryAfter = null;
+            try {
+                HttpResponse<InputStream> response = send(uri, requestHeaders);
+                if (response.statusCode() >= 400 && !(handleClientErrors && !isRetryableStatus(response.statusCode()))) {
+                    response.body().close();
+                    if (isRetryableStatus(response.statusCode())) {
+                        rateLimiter.throttled(host);
+                        retryAfter = getRetryAfter(response);
+                    }
+                    throw new HttpStatusException(response.statusCode(), url);
+                }
+                T result = handler.handle(response);
+                rateLimiter.succeeded(host);
+                return result;
+            } catch (HttpStatusException e) {
+                if (!isRetryableStatus(e.statusCode) || attempt >= maxRetries) throw e;
+                waitBeforeRetry(url, ++attempt, retryAfter, e);
+            } catch (IOException e) {
+                if (attempt >= maxRetries) throw e;
+                waitBeforeRetry(url, ++attempt, null, e);
+            }
+        }
+    }
+
+    /**
+     * Sends a conditional request if validators of a cached copy are known. If the provider answers
+     * "304 Not Modified" the handler is not called and the cached copy is still valid.
+     */
+    public <T> ConditionalResponse<T> fetchIfModified(String url, CacheValidators validators, ResponseHandler<T> handler) throws IOException, InterruptedException {
+        return fetch(url, validators.toRequestHeaders(), response -> {
+            if (response.statusCode() == HTTP_NOT_MODIFIED) {
+                response.body().close();
+                logger.fine("Not modified: " + url);
+                return new ConditionalResponse<>(null, validators, false);
+            }
+            CacheValidators newValidators = new CacheValidators(response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null));
+            return new ConditionalResponse<>(handler.handle(response), newValidators, true);
+        });
+    }
+
+    /**
+     * @return the URI of the page after following all redirects, the body is discarded; for a status like 404 this
+     * is the URI of the page not found
+     */
+    public URI fetchFinalUri(String url) throws IOException, InterruptedException {
+        return fetch(url, Collections.emptyMap(), response -> {
+            response.body().close();
+            return response.uri();
+        }, true);
+    }
+
+    /**
+     * @return the page parsed by jsoup
+     */
+    public Document fetchDocument(String url) throws IOException, InterruptedException {
+        return fetch(url, response -> {
+            try (InputStream body = openBody(response)) {
+                return Jsoup.parse(body, getCharset(response).name(), response.uri().toString());
+            }
+        });
+    }
+
+    /**
+     * @return the complete decompressed body of the response
+     */
+    public String readString(HttpResponse<InputStream> response) throws IOException {
+        try (InputStream body = openBody(response)) {
+            return new String(body.readAllBytes(), getCharset(response));
+        }
+    }
+
+    /**
+     * @return the body of the response, decompressed if the server sent it gzipped
+     */
+    public InputStream openBody(HttpResponse<InputStream> response) throws IOException {
+        String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("");
+        if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            return new GZIPInputStream(response.body());
+        }
+        return response.body();
+    }
+
+    private HttpResponse<InputStream> send(URI uri, Map<String, String> requestHeaders) throws IOException, InterruptedException {
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(requestTimeout)
+                .header("Accept-Encoding", "gzip")
+                .header("User-Agent", USER_AGENT)
+                .GET();
+        requestHeaders.forEach(requestBuilder::header);
+        logger.fine("Fetching " + uri);
+        return httpClient.send(requestBuilder.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private void waitBeforeRetry(String url, int attempt, Duration retryAfter, IOException cause) throws InterruptedException {
+        long backoffMillis = getWaitMillis(attempt, retryAfter);
+        logger.info("Retry " + attempt + "/" + maxRetries + " for \"" + url + "\" in " + backoffMillis + " ms: " + cause.getMessage());
+        Thread.sleep(backoffMillis);
+    }
+
+    /**
+     * @return the backoff for this attempt, or the Retry-After of the provider if that is longer, but never more than
+     * the maximum backoff
+     */
+    long getWaitMillis(int attempt, Duration retryAfter) {
+        long backoffMillis = getBackoffMillis(attempt);
+        if (retryAfter == null) return backoffMillis;
+        return Math.min(MAXIMUM_BACKOFF.toMillis(), Math.max(backoffMillis, retryAfter.toMillis()));
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half of the wait time is fixed, the other half is random,
+     * so that concurrent workers do not hit the provider again at the same moment.
+     */
+    long getBackoffMillis(int attempt) {
+        long exponentialMillis = Math.min(MAXIMUM_BACKOFF.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        long halfMillis = exponentialMillis / 2;
+        return halfMillis + ThreadLocalRandom.current().nextLong(halfMillis + 1);
+    }
+
+    private boolean isRetryableStatus(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+
+    private Duration getRetryAfter(HttpResponse<?> response) {
+        String retryAfter = response.headers().firstValue("Retry-After").orElse("");
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            // might be a HTTP date, the regular backoff is used instead
+            return null;
+        }
+    }
+
+    /**
+     * @return charset of the Content-Type header, UTF-8 if there is none
+     */
+    public Charset getCharset(HttpResponse<?> response) {
+        String contentType = response.headers().firstValue("Content-Type").orElse("");
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase().startsWith("charset=")) {
+                try {
+                    return Charset.forName(trimmed.substring("charset=".length()).replace("\"", ""));
+                } catch (IllegalArgumentException e) {
+                    logger.fine("Unknown charset in \"" + contentType + "\", using UTF-8");
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * Processes the response of a request; throwing an IOException marks the response as unusable and triggers a retry.
+     */
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        T handle(HttpResponse<InputStream> response) throws IOException;
+    }
+
+    /**
+     * Result of {@link #fetchIfModified(String, CacheValidators, ResponseHandler)}.
+     */
+    public static class ConditionalResponse<T> {
+        private final T content;
+        private final CacheValidators validators;
+        private final boolean modified;
+
+        ConditionalResponse(T content, CacheValidators validators, boolean modified) {
+            this.content = content;
+            this.validators = validators;
+            this.modified = modified;
+        }
+
+        /**
+         * @return result of the handler, null if not modified
+         */
+        public T getContent() {
+            return content;
+        }
+
+        /**
+         * @return validators of the new content or the given validators if not modified
+         */
+        public CacheValidators getValidators() {
+            return validators;
+        }
+
+        public boolean isModified() {
+            return modified;
+        }
+    }
+
+    static class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+        final int statusCode;
+
+        HttpStatusException(int statusCode, String url) {
+            super("HTTP status " + statusCode + " for " + url);
+            this.statusCode = statusCode;
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package services;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Returns only the content of the "__NEXT_DATA__" script of an HTML page, i.e. the JSON data of a Next.js page,
+ * while reading the page from the underlying stream. Everything before the script is skipped on the fly, so the page
+ * is never held in memory as a whole.
+ * <p>
+ * Throws an IOException if the page ends before the script or inside of it, e.g. for a throttled or truncated page.
+ */
+public class NextDataInputStream extends InputStream {
+    static final String START_TAG = "<script id=\"__NEXT_DATA__\" type=\"application/json\">";
+    static final String END_TAG = "</script>";
+    // both tags contain '<' only as first character, so a failed match can only restart at the current byte
+    private static final byte[] START = START_TAG.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = END_TAG.getBytes(StandardCharsets.US_ASCII);
+    private final InputStream in;
+    private final byte[] buffer = new byte[8192];
+    private int position;
+    private int limit;
+    private boolean started;
+    private boolean ended;
+    // number of bytes of the end tag matched so far; they are held back until the match fails
+    private int endMatched;
+    // bytes of a failed end tag match which still have to be returned
+    private int heldBackPosition;
+    private int heldBackLength;
+
+    public NextDataInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!started) skipToStart();
+        while (true) {
+            if (heldBackPosition < heldBackLength) {
+                return END[heldBackPosition++];
+            }
+            if (ended) return -1;
+            int b = nextByte();
+            if (b < 0) throw new EOFException("Page ends inside of the " + START_TAG + " part");
+            if (b == END[endMatched]) {
+                endMatched++;
+                if (endMatched == END.length) ended = true;
+                continue;
+            }
+            if (endMatched > 0) {
+                heldBackPosition = 0;
+                heldBackLength = endMatched;
+                endMatched = b == END[0] ? 1 : 0;
+                if (endMatched == 0) {
+                    // the current byte has to follow the held back bytes
+                    position--;
+                }
+                continue;
+            }
+            return b;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        int count = 0;
+        while (count < len) {
+            // avoid blocking for more data if something has been read already
+            if (count > 0 && position >= limit && heldBackPosition >= heldBackLength && in.available() <= 0) break;
+            int next = read();
+            if (next < 0) break;
+            b[off + count++] = (byte) next;
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void skipToStart() throws IOException {
+        int matched = 0;
+        while (matched < START.length) {
+            int b = nextByte();
+            if (b < 0) throw new EOFException("Page contains no " + START_TAG + " part");
+            if (b == START[matched]) {
+                matched++;
+            } else {
+                matched = b == START[0] ? 1 : 0;
+            }
+        }
+        started = true;
+    }
+
+    private int nextByte() throws IOException {
+        if (position >= limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xff;
+    }
+
+}
@@ -1,9 +1,11 @@
 package services;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import models.ImportedAssignments;
+import models.IndustryAliases;
+import models.IndustryMatchCache;
 import models.Security;
 import models.SecurityDetailsCache;
+import models.SimilarNamesCache;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.similarity.LevenshteinDistance;
 import org.w3c.dom.Document;
@@ -15,9 +17,14 @@ import xml.XmlHelper;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.PrintWriter;
 import java.nio.file.FileSystems;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,10 +32,18 @@ import static constants.PathConstants.CACHE_PATH;
 
 public class PortfolioDocumentService {
     private static final Logger logger = Logger.getLogger(PortfolioDocumentService.class.getCanonicalName());
+    // names of the taxonomies changed by updateXml, all others are left untouched
+    public static final Set<String> UPDATED_TAXONOMIES = Set.of("Regionen", "Branchen (GICS)", "Unternehmensgewichtung");
+    private static final int LEVENSHTEIN_DISTANCE_LIMIT = 15;
     Random random = new Random();
     XmlHelper xmlHelper = new XmlHelper();
     LevenshteinDistance distance = LevenshteinDistance.getDefaultInstance();
+    // stops as soon as the distance exceeds the limit of isNameSimilar and returns -1 then
+    LevenshteinDistance limitedDistance = new LevenshteinDistance(LEVENSHTEIN_DISTANCE_LIMIT);
     private String logsPath = CACHE_PATH;
+    private SimilarNamesCache similarNamesCache = new SimilarNamesCache(SimilarNamesCache.DEFAULT_MAXIMUM_SIZE);
+    private IndustryMatchCache industryMatchCache = new IndustryMatchCache();
+    private IndustryAliases industryAliases = IndustryAliases.getDefault();
 
     public PortfolioDocumentService() {
     }
@@ -37,35 +52,50 @@ public class PortfolioDocumentService {
         this.logsPath = logsPath;
     }
 
+    public PortfolioDocumentService(String logsPath, SimilarNamesCache similarNamesCache, IndustryMatchCache industryMatchCache) {
+        this.logsPath = logsPath;
+        this.similarNamesCache = similarNamesCache;
+        this.industryMatchCache = industryMatchCache;
+    }
+
+    public PortfolioDocumentService(String logsPath, SimilarNamesCache similarNamesCache, IndustryMatchCache industryMatchCache, IndustryAliases industryAliases) {
+        this(logsPath, similarNamesCache, industryMatchCache);
+        this.industryAliases = industryAliases;
+    }
+
     public void updateXml(Document portfolioDocument, List<Security> allSecurities, SecurityDetailsCache securityDetailsCache) {
+        updateXml(portfolioDocument, allSecurities, securityDetailsCache, false);
+    }
+
+    /**
+     * @param parallel import the taxonomies concurrently, each one on a copy in a document of its own, as the DOM is
+     *                 not thread-safe; the updated copies are put back into the portfolio document afterwards
+     */
+    public void updateXml(Document portfolioDocument, List<Security> allSecurities, SecurityDetailsCache securityDetailsCache, boolean parallel) {
         try {
+            List<Element> taxonomyElements = new ArrayList<>();
+            List<String> taxonomyNames = new ArrayList<>();
             NodeList listOfTaxonomies = portfolioDocument.getElementsByTagName("taxonomy");
             for (int i = 0; i < listOfTaxonomies.getLength(); i++) {
                 Node taxonomyNode = listOfTaxonomies.item(i);
                 if (taxonomyNode.getNodeType() == Node.ELEMENT_NODE) {
                     Element taxonomyElement = (Element) taxonomyNode;
-                    String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
+                    String taxonomyName = xmlHelper.getChildTextContent(taxonomyElement, "name");
                     logger.info("taxonomyName: " + taxonomyName);
-
-                    if (taxonomyName.equals("Regionen")) {
-                        // if there is an entry in the cache-file, nothing is imported !!!
-                        JsonArray importedRegions = importRegions(portfolioDocument, allSecurities, taxonomyElement);
-                        securityDetailsCache.setCachedCountries(importedRegions);
-                    }
-
-                    if (taxonomyName.equals("Branchen (GICS)")) {
-                        // if there is an entry in the cache-file, nothing is imported !!!
-                        JsonArray importedIndustries = importIndustries(portfolioDocument, allSecurities, taxonomyElement);
-                        securityDetailsCache.setCachedIndustries(importedIndustries);
-                    }
-
-                    if (taxonomyName.equals("Unternehmensgewichtung")) {
-                        // if there is an entry in the cache-file, nothing is imported !!!
-                        JsonArray importedTopTen = importCompanyRatio(portfolioDocument, allSecurities, taxonomyElement);
-                        securityDetailsCache.setCachedTopTen(importedTopTen);
+                    if (UPDATED_TAXONOMIES.contains(taxonomyName)) {
+                        taxonomyElements.add(taxonomyElement);
+                        taxonomyNames.add(taxonomyName);
                     }
                 }
             }
+            if (parallel && taxonomyElements.size() > 1) {
+                importTaxonomiesConcurrently(taxonomyElements, taxonomyNames, allSecurities, securityDetailsCache);
+            } else {
+                for (int i = 0; i < taxonomyElements.size(); i++) {
+                    ImportedAssignments importedAssignments = importTaxonomy(portfolioDocument, allSecurities, taxonomyElements.get(i), taxonomyNames.get(i));
+                    setCachedAssignments(securityDetailsCache, taxonomyNames.get(i), importedAssignments);
+                }
+            }
             // write all saved triples to avoid importing the same assignments several times for each run
             securityDetailsCache.save();
         } catch (IOException e) {
@@ -73,24 +103,120 @@ public class PortfolioDocumentService {
         }
     }
 
-    JsonArray importCompanyRatio(Document portfolioDocument, List<Security> allSecurities, Element taxonomyElement) throws FileNotFoundException {
+    private ImportedAssignments importTaxonomy(Document portfolioDocument, List<Security> allSecurities, Element taxonomyElement, String taxonomyName) throws FileNotFoundException {
+        // if there is an entry in the cache-file, nothing is imported !!!
+        switch (taxonomyName) {
+            case "Regionen":
+                return importRegions(portfolioDocument, allSecurities, taxonomyElement);
+            case "Branchen (GICS)":
+                return importIndustries(portfolioDocument, allSecurities, taxonomyElement);
+            default:
+                return importCompanyRatio(portfolioDocument, allSecurities, taxonomyElement);
+        }
+    }
+
+    private void setCachedAssignments(SecurityDetailsCache securityDetailsCache, String taxonomyName, ImportedAssignments importedAssignments) {
+        switch (taxonomyName) {
+            case "Regionen":
+                securityDetailsCache.setImportedCountries(importedAssignments);
+                break;
+            case "Branchen (GICS)":
+                securityDetailsCache.setImportedIndustries(importedAssignments);
+                break;
+            default:
+                securityDetailsCache.setImportedTopTen(importedAssignments);
+                break;
+        }
+    }
+
+    private void importTaxonomiesConcurrently(List<Element> taxonomyElements, List<String> taxonomyNames, List<Security> allSecurities, SecurityDetailsCache securityDetailsCache) throws IOException {
+        List<Element> copiedTaxonomies = new ArrayList<>();
+        List<Future<ImportedAssignments>> pendingImports = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(taxonomyElements.size());
+        try {
+            for (int i = 0; i < taxonomyElements.size(); i++) {
+                // the copies are made here, as even reading the DOM is not thread-safe
+                Element copiedTaxonomy = copyIntoOwnDocument(taxonomyElements.get(i));
+                String taxonomyName = taxonomyNames.get(i);
+                copiedTaxonomies.add(copiedTaxonomy);
+                pendingImports.add(executor.submit(() -> importTaxonomy(copiedTaxonomy.getOwnerDocument(), allSecurities, copiedTaxonomy, taxonomyName)));
+            }
+            // collecting in document order keeps the result independent of the completion order
+            for (int i = 0; i < taxonomyElements.size(); i++) {
+                ImportedAssignments importedAssignments = getImportedAssignments(pendingImports.get(i));
+                replaceChildren(taxonomyElements.get(i), copiedTaxonomies.get(i));
+                setCachedAssignments(securityDetailsCache, taxonomyNames.get(i), importedAssignments);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ImportedAssignments getImportedAssignments(Future<ImportedAssignments> pendingImport) throws IOException {
+        try {
+            return pendingImport.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import of taxonomy was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * @return a deep copy of the taxonomy in a new document, below elements named like its ancestors, so references
+     * relative to the root element stay the same
+     */
+    private Element copyIntoOwnDocument(Element taxonomyElement) {
+        Deque<String> ancestorNames = new ArrayDeque<>();
+        for (Node ancestor = taxonomyElement.getParentNode(); ancestor != null && ancestor.getNodeType() == Node.ELEMENT_NODE; ancestor = ancestor.getParentNode()) {
+            ancestorNames.push(ancestor.getNodeName());
+        }
+        Document document = taxonomyElement.getOwnerDocument().getImplementation().createDocument(null, ancestorNames.pop(), null);
+        Node parent = document.getDocumentElement();
+        for (String ancestorName : ancestorNames) {
+            parent = parent.appendChild(document.createElement(ancestorName));
+        }
+        return (Element) parent.appendChild(document.importNode(taxonomyElement, true));
+    }
+
+    /**
+     * Replaces the content of the taxonomy, so the element itself and its user data stay in place.
+     */
+    private void replaceChildren(Element taxonomyElement, Element updatedTaxonomy) {
+        while (taxonomyElement.getFirstChild() != null) {
+            taxonomyElement.removeChild(taxonomyElement.getFirstChild());
+        }
+        Document portfolioDocument = taxonomyElement.getOwnerDocument();
+        for (Node child = updatedTaxonomy.getFirstChild(); child != null; child = child.getNextSibling()) {
+            taxonomyElement.appendChild(portfolioDocument.importNode(child, true));
+        }
+    }
+
+    ImportedAssignments importCompanyRatio(Document portfolioDocument, List<Security> allSecurities, Element taxonomyElement) throws FileNotFoundException {
         logger.info("Importing Unternehmensgewichtung..");
-        JsonArray importedTopTen = new JsonArray();
+        ImportedAssignments importedTopTen = new ImportedAssignments();
 
         TreeMap<String, List<String>> allStockNames = collectAllStockNames(allSecurities);
+        HoldingIndex holdingIndex = new HoldingIndex(allSecurities, allStockNames);
 
         // search for "children" element as direct child of "root"
-        Node rootOfTopTenNode = taxonomyElement.getElementsByTagName("root").item(0);
+        Node rootOfTopTenNode = xmlHelper.getChildElement(taxonomyElement, "root");
         Element childrenElement = xmlHelper.getFirstChildElementWithNodeName(rootOfTopTenNode, "children");
         if (childrenElement == null) {
             childrenElement = portfolioDocument.createElement("children");
         } else {
             // remove orphan Unternehmensgewichtung assignments
+            SecurityRegistry securityRegistry = new SecurityRegistry(allSecurities);
             NodeList allTopTenFromPortfolioNodeList = taxonomyElement.getElementsByTagName("classification");
             for (int indexTopTen = 0; indexTopTen < allTopTenFromPortfolioNodeList.getLength(); indexTopTen++) {
                 Node topTenFromPortfolioNode = allTopTenFromPortfolioNodeList.item(indexTopTen);
                 if (topTenFromPortfolioNode.getNodeType() == Node.ELEMENT_NODE) {
-                    String topTenNameFromPortfolio = xmlHelper.getTextContent((Element) topTenFromPortfolioNode, "name");
+                    String topTenNameFromPortfolio = xmlHelper.getChildTextContent((Element) topTenFromPortfolioNode, "name");
                     // check for each assignment if the corresponding stock still exists in portfolio
                     NodeList assignments = ((Element) topTenFromPortfolioNode).getElementsByTagName("assignment");
                     int indexSecurityToCheck;
@@ -102,17 +228,11 @@ public class PortfolioDocumentService {
                                 continue;
                             String reference = investmentVehicle.getAttribute("reference");
                             if (reference.isEmpty()) continue;
-                            if (reference.endsWith("securities/security")) {
-                                indexSecurityToCheck = 0;
-                            } else {
-                                String foundIndex = reference.substring(reference.indexOf('[') + 1, reference.indexOf(']'));
-                                indexSecurityToCheck = Integer.parseInt(foundIndex) - 1;
-                            }
+                            indexSecurityToCheck = AssignmentIndex.getSecurityIndex(reference) - 1;
                             if (indexSecurityToCheck < 0 || indexSecurityToCheck >= allSecurities.size()) continue;
-                            int finalIndexSecurityToCheck = indexSecurityToCheck;
-                            Optional<Security> security = allSecurities.stream().filter(s -> s.getIndexInPortfolio() == finalIndexSecurityToCheck).findFirst();
-                            if (security.isPresent() && !hasSecurityHolding(security.get(), allStockNames, topTenNameFromPortfolio)) {
-                                logger.fine("Removing " + security.get() + " from Unternehmensgewichtung " + topTenNameFromPortfolio);
+                            Security security = securityRegistry.get(indexSecurityToCheck);
+                            if (security != null && !hasSecurityHolding(security, holdingIndex, topTenNameFromPortfolio)) {
+                                logger.fine("Removing " + security + " from Unternehmensgewichtung " + topTenNameFromPortfolio);
                                 Node assignmentsNode = assignment.getParentNode();
                                 assignmentsNode.removeChild(assignment);
                                 if (((Element) assignmentsNode).getElementsByTagName("assignment").getLength() == 0) {
@@ -127,18 +247,20 @@ public class PortfolioDocumentService {
             }
         }
         // add or update Unternehmensgewichtung
+        AssignmentIndex assignmentIndex = new AssignmentIndex(xmlHelper);
+        ClassificationIndex classificationIndex = new ClassificationIndex(xmlHelper, childrenElement);
         for (String stockName : allStockNames.keySet()) {
             logger.fine("Stockname: " + stockName);
 
-            Element existingClassification = findClassificationBySimilarName(childrenElement, stockName);
-            List<Security> existingSecurities = findSecuritiesByHolding(allSecurities, allStockNames, stockName);
+            Element existingClassification = findClassificationBySimilarName(classificationIndex, stockName);
+            List<Security> existingSecurities = holdingIndex.findSecurities(stockName);
             if (existingClassification != null && !existingSecurities.isEmpty()) {
                 for (Security existingSecurity : existingSecurities) {
                     int indexOfExistingSecurity = existingSecurity.getIndexInPortfolio();
-                    List<Element> existingAssignmentsList = findAssignmentsBySecurityIndex(existingClassification, indexOfExistingSecurity + 1);
+                    List<Element> existingAssignmentsList = assignmentIndex.getAssignments(existingClassification, indexOfExistingSecurity + 1);
                     if (!existingAssignmentsList.isEmpty()) {
                         // update existing or add additional assignments
-                        List<Integer> allPercentagesOfHoldingsForSecurityByStockname = getAllPercentagesOfHoldingsForSecurityByStockname(existingSecurity, allStockNames, stockName);
+                        List<Integer> allPercentagesOfHoldingsForSecurityByStockname = holdingIndex.getPercentages(existingSecurity, stockName);
                         for (int index = 0; index < allPercentagesOfHoldingsForSecurityByStockname.size(); index++) {
                             Integer percentage = allPercentagesOfHoldingsForSecurityByStockname.get(index);
                             if (existingAssignmentsList.size() > index) {
@@ -150,7 +272,7 @@ public class PortfolioDocumentService {
                                 // add NEW assignment
                                 logger.fine("Adding " + existingSecurity + " to Unternehmensgewichtung " + stockName + ": " + percentage);
                                 Element assignments = xmlHelper.getFirstChildElementWithNodeName(existingClassification, "assignments");
-                                addTopTenAssignment(portfolioDocument, stockName, existingSecurity, 0, assignments, importedTopTen, percentage);
+                                addTopTenAssignment(portfolioDocument, stockName, existingSecurity, 0, assignments, importedTopTen, percentage, assignmentIndex);
                             }
                         }
                     } else {
@@ -161,7 +283,7 @@ public class PortfolioDocumentService {
                             childrenElement.appendChild(assignments);
                         }
                         logger.fine("Adding " + existingSecurity + " to Unternehmensgewichtung for " + stockName);
-                        addAssignmentToAssignments(portfolioDocument, existingSecurity, stockName, importedTopTen, allStockNames, assignments, 0);
+                        addAssignmentToAssignments(portfolioDocument, existingSecurity, stockName, importedTopTen, allStockNames, assignments, 0, assignmentIndex);
                     }
                 }
             } else {
@@ -169,11 +291,12 @@ public class PortfolioDocumentService {
                 logger.fine("Adding all holdings to Unternehmensgewichtung for " + stockName);
                 Element assignments = portfolioDocument.createElement("assignments");
                 childrenElement.appendChild(assignments);
-                addAssignmentsToAssignments(portfolioDocument, allSecurities, stockName, importedTopTen, allStockNames, assignments);
+                addAssignmentsToAssignments(portfolioDocument, holdingIndex.findSecurities(stockName), stockName, importedTopTen, allStockNames, assignments, assignmentIndex);
                 // only add classification if it has assignments; no assignments happen, if the ETF were added in previous runs and is written into the save file
                 if (assignments.hasChildNodes()) {
                     Element classificationNodeForStock = createNewClassification(portfolioDocument, stockName, assignments);
                     childrenElement.appendChild(classificationNodeForStock);
+                    classificationIndex.add(classificationNodeForStock);
                 }
             }
         }
@@ -230,47 +353,42 @@ public class PortfolioDocumentService {
         return classificationNodeForStock;
     }
 
-    private void addAssignmentsToAssignments(Document portfolioDocument, List<Security> allSecurities, String stockName, JsonArray importedTopTen, TreeMap<String, List<String>> allStockNames, Element assignments) {
+    /**
+     * @param securities the securities holding the stock, others would not be assigned anyway
+     */
+    private void addAssignmentsToAssignments(Document portfolioDocument, List<Security> securities, String stockName, ImportedAssignments importedTopTen, TreeMap<String, List<String>> allStockNames, Element assignments, AssignmentIndex assignmentIndex) {
         int rank = 0;
-        for (Security security : allSecurities) {
-            rank = addAssignmentToAssignments(portfolioDocument, security, stockName, importedTopTen, allStockNames, assignments, rank);
+        for (Security security : securities) {
+            rank = addAssignmentToAssignments(portfolioDocument, security, stockName, importedTopTen, allStockNames, assignments, rank, assignmentIndex);
         }
     }
 
-    private int addAssignmentToAssignments(Document portfolioDocument, Security security, String stockName, JsonArray importedTopTen, TreeMap<String, List<String>> allStockNames, Element assignments, int rank) {
+    private int addAssignmentToAssignments(Document portfolioDocument, Security security, String stockName, ImportedAssignments importedTopTen, TreeMap<String, List<String>> allStockNames, Element assignments, int rank, AssignmentIndex assignmentIndex) {
         // find security that contains the current stock identified by any similar name
         if (security.getHoldings().containsKey(stockName)) {
             // primary name
-            rank = addTopTenAssignment(portfolioDocument, stockName, security, 0, assignments, importedTopTen);
+            rank = addTopTenAssignment(portfolioDocument, stockName, security, 0, assignments, importedTopTen, assignmentIndex);
         }
         // alternative names
         List<String> alternativeNames = allStockNames.get(stockName);
         for (String alternativeName : alternativeNames) {
             if (security.getHoldings().containsKey(alternativeName)) {
-                rank = addTopTenAssignment(portfolioDocument, alternativeName, security, rank, assignments, importedTopTen);
+                rank = addTopTenAssignment(portfolioDocument, alternativeName, security, rank, assignments, importedTopTen, assignmentIndex);
             }
         }
 
         return rank;
     }
 
-    private int addTopTenAssignment(Document portfolioDocument, String stockName, Security security, int rank, Element assignments, JsonArray importedTopTen) {
+    private int addTopTenAssignment(Document portfolioDocument, String stockName, Security security, int rank, Element assignments, ImportedAssignments importedTopTen, AssignmentIndex assignmentIndex) {
         int percentage = getPercentageOfHolding(security, stockName);
 
-        return addTopTenAssignment(portfolioDocument, stockName, security, rank, assignments, importedTopTen, percentage);
+        return addTopTenAssignment(portfolioDocument, stockName, security, rank, assignments, importedTopTen, percentage, assignmentIndex);
     }
 
-    private int addTopTenAssignment(Document portfolioDocument, String stockName, Security security, int rank, Element assignments, JsonArray importedTopTen, int percentage) {
-        boolean found = false;
+    private int addTopTenAssignment(Document portfolioDocument, String stockName, Security security, int rank, Element assignments, ImportedAssignments importedTopTen, int percentage, AssignmentIndex assignmentIndex) {
         // verify that this stock was not imported by an alternative name before
-        for (int i = 0; i < importedTopTen.size(); i++) {
-            JsonObject topTen = importedTopTen.get(i).getAsJsonObject();
-            if (jsonObjectEqualsInWeightAndIsinAndClassification(topTen, security.getIsin(), percentage, stockName)) {
-                found = true;
-                break;
-            }
-        }
-        if (!found) {
+        if (!importedTopTen.contains(stockName, security.getIsin(), percentage)) {
             Element investmentVehicle = portfolioDocument.createElement("investmentVehicle");
             investmentVehicle.setAttribute("class", "security");
             investmentVehicle.setAttribute("reference", "../../../../../../../../securities/security[" + (security.getIndexInPortfolio() + 1) + "]");
@@ -278,22 +396,13 @@ public class PortfolioDocumentService {
             Element assignment = createAssignmentElement(portfolioDocument, rank, percentage);
             assignment.appendChild(investmentVehicle);
             assignments.appendChild(assignment);
-            JsonObject securityJsonObject = createSecurityJson(stockName, security.getIsin(), percentage);
-            importedTopTen.add(securityJsonObject);
+            assignmentIndex.add(assignments.getParentNode(), security.getIndexInPortfolio() + 1, assignment);
+            importedTopTen.add(stockName, security.getIsin(), percentage);
             rank++;
         }
         return rank;
     }
 
-    private JsonObject createSecurityJson(String classification, String isin, int weight) {
-        JsonObject security = new JsonObject();
-        security.addProperty("weight", weight);
-        security.addProperty("isin", isin);
-        security.addProperty("classification", classification);
-
-        return security;
-    }
-
     private Element createAssignmentElement(Document doc, int rank, int weight) {
         Element weightOfETF = doc.createElement("weight");
         weightOfETF.setTextContent(Integer.toString(weight));
@@ -337,28 +446,29 @@ public class PortfolioDocumentService {
 
     TreeMap<String, List<String>> reduceSimilarStrings(Collection<String> input) {
         TreeMap<String, List<String>> result = new TreeMap<>();
+        // only names passing the candidate filter are compared, in the order of the keys of the result
+        SimilarNameIndex similarNameIndex = new SimilarNameIndex();
+        Map<String, String> lowerCaseNames = new HashMap<>();
         for (String inputName : input) {
-            if (result.isEmpty()) {
-                // very first entry
-                result.put(inputName, new ArrayList<>());
-            } else {
-                // check if similar name already exists in map
-                boolean found = false;
-                // Vanguard-ETFs should not be reduced as they most of the time only vary very little in their names
-                if (!inputName.startsWith("Vanguard")) {
-                    for (String existingName : result.keySet()) {
-                        if (isNameSimilar(inputName, existingName)) {
-                            // similar names exist and are not almost equal, add alternative name to list
-                            result.get(existingName).add(inputName);
-                            found = true;
-                            break;
-                        }
+            String lowerCaseInputName = inputName.toLowerCase();
+            // check if similar name already exists in map
+            boolean found = false;
+            // Vanguard-ETFs should not be reduced as they most of the time only vary very little in their names
+            if (!inputName.startsWith("Vanguard")) {
+                for (String existingName : similarNameIndex.getCandidates(inputName)) {
+                    if (isNameSimilar(inputName, lowerCaseInputName, existingName, lowerCaseNames.get(existingName))) {
+                        // similar names exist and are not almost equal, add alternative name to list
+                        result.get(existingName).add(inputName);
+                        found = true;
+                        break;
                     }
                 }
-                if (!found) {
-                    // maybe here we should check the spelling as the primary name later sets the name of the folder
-                    result.put(inputName, new ArrayList<>());
-                }
+            }
+            if (!found) {
+                // maybe here we should check the spelling as the primary name later sets the name of the folder
+                result.put(inputName, new ArrayList<>());
+                similarNameIndex.add(inputName);
+                lowerCaseNames.put(inputName, lowerCaseInputName);
             }
         }
         if (logger.isLoggable(Level.FINE)) {
@@ -370,77 +480,101 @@ public class PortfolioDocumentService {
         return result;
     }
 
+    /**
+     * {@link SimilarNameIndex} relies on these rules to preselect the names to compare.
+     */
     boolean isNameSimilar(String one, String two) {
-        final int LEVENSHTEINDISTANCELIMIT = 15;
-        Integer levenshteinDistanceLowerCase = distance.apply(one.toLowerCase(), two.toLowerCase());
-        logger.fine("Distance of \"" + one + "\" and \"" + two + "\": " + levenshteinDistanceLowerCase);
+        return isNameSimilar(one, one.toLowerCase(), two, two.toLowerCase());
+    }
+
+    /**
+     * Same as {@link #isNameSimilar(String, String)} with the lower case names already known. Pairs compared before
+     * are looked up in the {@link SimilarNamesCache}.
+     */
+    boolean isNameSimilar(String one, String oneLowerCase, String two, String twoLowerCase) {
+        Boolean cachedSimilar = similarNamesCache.get(one, oneLowerCase, two, twoLowerCase);
+        if (cachedSimilar != null) return cachedSimilar;
+        boolean similar = compareNames(one, oneLowerCase, two, twoLowerCase);
+        similarNamesCache.put(one, oneLowerCase, two, twoLowerCase, similar);
+        return similar;
+    }
+
+    private boolean compareNames(String one, String oneLowerCase, String two, String twoLowerCase) {
+        int levenshteinDistanceLowerCase = limitedDistance.apply(oneLowerCase, twoLowerCase);
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Distance of \"" + one + "\" and \"" + two + "\": " + levenshteinDistanceLowerCase);
+        }
+        if (levenshteinDistanceLowerCase < 0) {
+            // more than LEVENSHTEIN_DISTANCE_LIMIT differences
+            return false;
+        }
         if (levenshteinDistanceLowerCase <= 1) {
             return true;
         }
-        if (levenshteinDistanceLowerCase <= LEVENSHTEINDISTANCELIMIT) {
-            // names are similar, less than LEVENSHTEINDISTANCELIMIT differences
-            int indexOfDifferenceLowerCase = StringUtils.indexOfDifference(one.toLowerCase(), two.toLowerCase());
-            int inputNameLength = one.length();
-            int existingNameLength = two.length();
-            int shorterNameLength = Math.min(inputNameLength, existingNameLength);
+        // names are similar, less than LEVENSHTEIN_DISTANCE_LIMIT differences
+        int indexOfDifferenceLowerCase = StringUtils.indexOfDifference(oneLowerCase, twoLowerCase);
+        int inputNameLength = one.length();
+        int existingNameLength = two.length();
+        int shorterNameLength = Math.min(inputNameLength, existingNameLength);
+        if (logger.isLoggable(Level.FINE)) {
             logger.fine("IndexOfDifference of \"" + one + "\" and \"" + two + "\": " + indexOfDifferenceLowerCase + ", shorterNameLength: " + shorterNameLength);
-            if (shorterNameLength <= indexOfDifferenceLowerCase) {
-                // real subsets of names are identical, e.g. "SAP" and "SAP SE"
-                return true;
-            }
-            // names differ in later characters, so the beginning of both names are equal
-            if (one.toLowerCase().startsWith("alphabet") && two.toLowerCase().startsWith("alphabet")) {
-                return true;
-            }
-            if (one.contains(" ") && two.contains(" ")) {
-                // both names contain a blank and therefore consist of multiple parts
-                int oneIndexOfBlank = one.indexOf(" ");
-                int twoIndexOfBlank = two.indexOf(" ");
-                if (oneIndexOfBlank + 1 == indexOfDifferenceLowerCase && twoIndexOfBlank + 1 == indexOfDifferenceLowerCase) {
-                    String[] oneParts = one.toLowerCase().split("\\h");
-                    String[] twoParts = two.toLowerCase().split("\\h");
-                    return isNameSimilar(oneParts[1], twoParts[1]);
-                }
+        }
+        if (shorterNameLength <= indexOfDifferenceLowerCase) {
+            // real subsets of names are identical, e.g. "SAP" and "SAP SE"
+            return true;
+        }
+        // names differ in later characters, so the beginning of both names are equal
+        if (oneLowerCase.startsWith("alphabet") && twoLowerCase.startsWith("alphabet")) {
+            return true;
+        }
+        if (one.contains(" ") && two.contains(" ")) {
+            // both names contain a blank and therefore consist of multiple parts
+            int oneIndexOfBlank = one.indexOf(" ");
+            int twoIndexOfBlank = two.indexOf(" ");
+            if (oneIndexOfBlank + 1 == indexOfDifferenceLowerCase && twoIndexOfBlank + 1 == indexOfDifferenceLowerCase) {
+                String[] oneParts = oneLowerCase.split("\\h");
+                String[] twoParts = twoLowerCase.split("\\h");
+                return isNameSimilar(oneParts[1], twoParts[1]);
             }
-            return indexOfDifferenceLowerCase > 7;
         }
-        return false;
+        return indexOfDifferenceLowerCase > 7;
     }
 
-    JsonArray importIndustries(Document portfolioDocument, List<Security> allSecurities, Element taxonomyElement) throws FileNotFoundException {
+    ImportedAssignments importIndustries(Document portfolioDocument, List<Security> allSecurities, Element taxonomyElement) throws FileNotFoundException {
         logger.info("Importing industries...");
         NodeList allIndustriesFromPortfolioNodeList = taxonomyElement.getElementsByTagName("classification");
 
-        JsonArray importedIndustries = new JsonArray();
+        ImportedAssignments importedIndustries = new ImportedAssignments();
+        AssignmentIndex assignmentIndex = new AssignmentIndex(xmlHelper);
         Map<String, PortfolioDocumentService.NodeRankTuple> industryNameFromPortfolioToNodeMap = new HashMap<>();
+        List<String> industryNamesFromPortfolio = new ArrayList<>();
         for (int indexIndustry = 0; indexIndustry < allIndustriesFromPortfolioNodeList.getLength(); indexIndustry++) {
             Node industryFromPortfolioNode = allIndustriesFromPortfolioNodeList.item(indexIndustry);
             if (industryFromPortfolioNode.getNodeType() == Node.ELEMENT_NODE) {
-                String industryNameFromPortfolio = xmlHelper.getTextContent((Element) industryFromPortfolioNode, "name");
+                String industryNameFromPortfolio = xmlHelper.getChildTextContent((Element) industryFromPortfolioNode, "name");
                 logger.fine("Importing industry " + industryNameFromPortfolio);
                 industryNameFromPortfolioToNodeMap.put(industryNameFromPortfolio, new PortfolioDocumentService.NodeRankTuple(industryFromPortfolioNode, 0));
-                removeOrphanIndustryAssignment(industryFromPortfolioNode, industryNameFromPortfolio, allSecurities);
+                industryNamesFromPortfolio.add(industryNameFromPortfolio);
+                removeOrphanIndustryAssignment(industryFromPortfolioNode, industryNameFromPortfolio, allSecurities, assignmentIndex);
             }
         }
+        industryMatchCache.useIndustries(industryNamesFromPortfolio);
         for (Security security : allSecurities) {
             logger.fine("Security: " + security);
 
             StringBuilder industryAssignmentLog = new StringBuilder();
             for (String industryNameFromSecurity : security.getIndustries().keySet()) {
-                String optimizedIndustryNameFromSecurity = optimizeIndustryNameFromSecurity(industryNameFromSecurity);
-                if ("DE0008402215".equalsIgnoreCase(security.getIsin())) {
-                    // Hannover Rück is classified as "Versicherung" ?!?
-                    optimizedIndustryNameFromSecurity = "Rückversicherungen";
-                }
+                // an alias or the industry overridden for this security
+                String optimizedIndustryNameFromSecurity = optimizeIndustryNameFromSecurity(security.getIsin(), industryNameFromSecurity);
                 // skip not matching industries, e.g. "diverse Branchen"
                 if (optimizedIndustryNameFromSecurity.isEmpty()) continue;
-                BestMatch bestMatch = getBestMatch(industryNameFromPortfolioToNodeMap.keySet(), optimizedIndustryNameFromSecurity);
+                BestMatch bestMatch = getCachedBestMatch(industryNameFromPortfolioToNodeMap.keySet(), optimizedIndustryNameFromSecurity);
 
                 int percentage = (int) Math.round(security.getPercentageOfBranch(industryNameFromSecurity) * 100.0);
 
                 PortfolioDocumentService.NodeRankTuple oTuple = industryNameFromPortfolioToNodeMap.get(bestMatch.bestMatchingIndustryName);
                 Node industryNode = oTuple.oNode;
-                Element assignment = findAssignmentBySecurityIndex(industryNode, security.getIndexInPortfolio() + 1);
+                Element assignment = assignmentIndex.getAssignment(industryNode, security.getIndexInPortfolio() + 1);
                 if (percentage > 0) {
                     // check if assignment already exists and needs to be updated or added
                     if (assignment != null) {
@@ -453,9 +587,9 @@ public class PortfolioDocumentService {
                         Element assignments = linkAssignmentsToInvestmentVehicle(industryNode, investmentVehicle, security.getIndexInPortfolio());
                         assignment.appendChild(investmentVehicle);
                         assignments.appendChild(assignment);
+                        assignmentIndex.add(industryNode, security.getIndexInPortfolio() + 1, assignment);
 
-                        JsonObject securityJsonObject = createSecurityJson(bestMatch.bestMatchingIndustryName, security.getIsin(), percentage);
-                        importedIndustries.add(securityJsonObject);
+                        importedIndustries.add(bestMatch.bestMatchingIndustryName, security.getIsin(), percentage);
 
                         industryAssignmentLog.append("Industry \"").append(industryNameFromSecurity).append("\" assigned with ").append((double) percentage / 100.0).append("% to industry in PP \"").append(bestMatch.bestMatchingIndustryName).append("\". LevenshteinDistance in naming: ").append(bestMatch.lowestDistance).append("\n");
                     }
@@ -468,6 +602,18 @@ public class PortfolioDocumentService {
         return importedIndustries;
     }
 
+    /**
+     * Same as {@link #getBestMatch} for the branch names set by {@link IndustryMatchCache#useIndustries}, but each
+     * branch name from a security is only compared to all branch names from the portfolio once.
+     */
+    BestMatch getCachedBestMatch(Collection<String> branchNamesFromPortfolio, String branchNameFromSecurity) {
+        IndustryMatchCache.Match match = industryMatchCache.get(branchNameFromSecurity);
+        if (match != null) return new BestMatch(match.industryName, match.distance);
+        BestMatch bestMatch = getBestMatch(branchNamesFromPortfolio, branchNameFromSecurity);
+        industryMatchCache.put(branchNameFromSecurity, bestMatch.bestMatchingIndustryName, bestMatch.lowestDistance);
+        return bestMatch;
+    }
+
     BestMatch getBestMatch(Collection<String> branchNamesFromPortfolio, String branchNameFromSecurity) {
         String bestMatchingBranchName = "";
         int currentLowestDistance = 1000;
@@ -504,114 +650,33 @@ public class PortfolioDocumentService {
         return assignments;
     }
 
-    private boolean jsonObjectEqualsInWeightAndIsinAndClassification(JsonObject json, String isin, int weight, String classification) {
-        return json.get("weight").getAsInt() == weight &&
-                json.get("isin").getAsString().equals(isin) &&
-                json.get("classification").getAsString().equals(classification);
+    /**
+     * Some industry names of a security do not fit the names of the taxonomy, some are even misspelled.
+     *
+     * @return the name of the industry in the taxonomy for the industry name of a security, see {@link IndustryAliases}
+     */
+    String optimizeIndustryNameFromSecurity(String industryNameFromSecurity) {
+        return industryAliases.getIndustryName(industryNameFromSecurity);
     }
 
-    /*
-        Some names from the official data from a security might not fit well into the schema from
-        Portfolio Performance (or GICS) and should be "optimized" - some are even misspelled
+    /**
+     * Same as {@link #optimizeIndustryNameFromSecurity(String)}, but the industry may be overridden for the security.
      */
-    String optimizeIndustryNameFromSecurity(String industryNameFromSecurity) {
-        String result = industryNameFromSecurity;
-        switch (industryNameFromSecurity) {
-            case "IT/Telekommunikation":
-                result = "Informationstechnologie";
-                break;
-            case "Telekomdienste":
-            case "Telekommunikation":
-                result = "Telekommunikationsdienste";
-                break;
-            case "diverse Branchen":
-            case "Sonstige Branchen":
-                result = "";
-                break;
-            case "Konsumgüter":
-                result = "Basiskonsumgüter";
-                break;
-            case "Konsumgüter zyklisch":
-                result = "Nicht-Basiskonsumgüter";
-                break;
-            case "Rohstoffe":
-                result = "Roh-, Hilfs- & Betriebsstoffe";
-                break;
-            case "Computerherstellung":
-            case "Hardware- Technologie, Speicherung und Peripheriegeräte":
-                result = "Hardware Technologie, Speicherung & Peripherie";
-                break;
-            case "Fahrzeugbau":
-            case "Kraftfahrzeuge":
-                result = "Automobilbranche";
-                break;
-            case "Halbleiterelektronik":
-                result = "Halbleiter";
-                break;
-            case "Halbleiter Ausstattung":
-                result = "Geräte zur Halbleiterproduktion";
-                break;
-            case "Baumaterialien/Baukomponenten":
-                result = "Baumaterialien";
-                break;
-            case "Vesorger/Strom konventionell/ Enegiefirmen":
-            case "Versorger/Strom konventionell/ Enegiefirmen":
-            case "Versorger/Strom konventionell/ Energiefirmen":
-            case "Versorger umfassend":
-                result = "Multi-Versorger";
-                break;
-            case "Versorger/ erneuerbare Energie":
-                result = "Unabhängige Energie- und Erneuerbare Elektrizitätshersteller";
-                break;
-            case "Versorger":
-                result = "Versorgungsbetriebe";
-                break;
-            case "Bauwesen":
-                result = "Bau- & Ingenieurswesen";
-                break;
-            case "Unterhaltungselektronik":
-                result = "Verbraucherelektronik";
-                break;
-            case "Finanzdienstleistungen":
-                result = "Private Finanzdienste";
-                break;
-            case "Finanzen":
-                result = "Finanzwesen";
-                break;
-            case "Einzelhandel REITs":
-                result = "Handels-REITs";
-                break;
-            case "Diversifizierte REITs":
-                result = "Verschiedene REITs";
-                break;
-            case "Hypotheken-Immobilien-fonds (REITs)":
-                result = "Hypotheken-, Immobilien-, Investment-, Trusts (REITs)";
-                break;
-            case "Elektrokomponenten":
-                result = "Elektronische Komponenten";
-                break;
-            case "Elektrokomponenten & -geräte":
-                result = "Elektronische Geräte & Instrumente";
-                break;
-            case "Industriemaschinenbau":
-                result = "Industriemaschinen";
-                break;
-            default:
-                break;
-        }
-        return result;
+    String optimizeIndustryNameFromSecurity(String isin, String industryNameFromSecurity) {
+        return industryAliases.getIndustryName(isin, industryNameFromSecurity);
     }
 
-    JsonArray importRegions(Document portfolioDocument, List<Security> allSecurities, Element taxonomyElement) throws FileNotFoundException {
+    ImportedAssignments importRegions(Document portfolioDocument, List<Security> allSecurities, Element taxonomyElement) throws FileNotFoundException {
         logger.info("Importing regions...");
         NodeList allCountriesFromPortfolioList = taxonomyElement.getElementsByTagName("classification");
 
-        JsonArray importedRegions = new JsonArray();
+        ImportedAssignments importedRegions = new ImportedAssignments();
+        AssignmentIndex assignmentIndex = new AssignmentIndex(xmlHelper);
         for (int indexCountry = 0; indexCountry < allCountriesFromPortfolioList.getLength(); indexCountry++) {
             Node countryFromPortfolioNode = allCountriesFromPortfolioList.item(indexCountry);
             int rank = 0;
             if (countryFromPortfolioNode.getNodeType() == Node.ELEMENT_NODE) {
-                String countryNameFromPortfolio = xmlHelper.getTextContent((Element) countryFromPortfolioNode, "name");
+                String countryNameFromPortfolio = xmlHelper.getChildTextContent((Element) countryFromPortfolioNode, "name");
                 if (countryNameFromPortfolio.equals("Vereinigte Staaten")) {
                     countryNameFromPortfolio = "USA";
                 }
@@ -620,11 +685,11 @@ public class PortfolioDocumentService {
                     // potential problem with german umlauts due to different encodings!!!
                     int percentage = (int) Math.round(security.getPercentageOfCountry(countryNameFromPortfolio) * 100.0);
 
-                    Element assignment = findAssignmentBySecurityIndex(countryFromPortfolioNode, security.getIndexInPortfolio() + 1);
+                    Element assignment = assignmentIndex.getAssignment(countryFromPortfolioNode, security.getIndexInPortfolio() + 1);
                     if (percentage == 0) {
                         // maybe this holding was contained before, so check if we have to remove it from this country
                         if (assignment != null)
-                            assignment.getParentNode().removeChild(assignment);
+                            assignmentIndex.remove(countryFromPortfolioNode, security.getIndexInPortfolio() + 1, assignment);
                     } else {
                         // check if assignment already exists and needs to be updated or added
                         if (assignment != null) {
@@ -638,9 +703,9 @@ public class PortfolioDocumentService {
                             Element assignments = linkAssignmentsToInvestmentVehicle(countryFromPortfolioNode, investmentVehicle, security.getIndexInPortfolio());
                             assignment.appendChild(investmentVehicle);
                             assignments.appendChild(assignment);
+                            assignmentIndex.add(countryFromPortfolioNode, security.getIndexInPortfolio() + 1, assignment);
 
-                            JsonObject securityJsonObject = createSecurityJson(countryNameFromPortfolio, security.getIsin(), percentage);
-                            importedRegions.add(securityJsonObject);
+                            importedRegions.add(countryNameFromPortfolio, security.getIsin(), percentage);
 
                             rank++;
                         }
@@ -694,72 +759,23 @@ public class PortfolioDocumentService {
         }
     }
 
-    Element findAssignmentBySecurityIndex(Node parent, int securityIndex) {
-        Element assignments = xmlHelper.getFirstChildElementWithNodeName(parent, "assignments");
-        if (assignments == null) return null;
-        NodeList children = assignments.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            if (children.item(i).getNodeType() == Node.ELEMENT_NODE && children.item(i).getNodeName().equals("assignment")) {
-                Element assignment = (Element) children.item(i);
-                String reference = getReference(assignment);
-                if (reference == null || reference.isEmpty()) continue;
-                if (securityIndex == 1 && reference.endsWith("securities/security")) return assignment;
-                if (!(reference.contains("[") && reference.contains("]"))) continue;
-                String foundIndex = reference.substring(reference.indexOf('[') + 1, reference.indexOf(']'));
-                if (Integer.parseInt(foundIndex) == securityIndex) return assignment;
-            }
-        }
-        return null;
-    }
-
-    private String getReference(Element assignment) {
-        Element investmentVehicle = xmlHelper.getFirstChildElementWithNodeName(assignment, "investmentVehicle");
-        if (investmentVehicle == null || !investmentVehicle.getAttribute("class").equals("security")) return null;
-        return investmentVehicle.getAttribute("reference");
-    }
-
-    List<Element> findAssignmentsBySecurityIndex(Node parent, int securityIndex) {
-        List<Element> foundAssignments = new ArrayList<>();
-        Element assignments = xmlHelper.getFirstChildElementWithNodeName(parent, "assignments");
-        if (assignments == null) return foundAssignments;
-        NodeList children = assignments.getChildNodes();
-        for (int i = 0; i < children.getLength(); i++) {
-            if (children.item(i).getNodeType() == Node.ELEMENT_NODE && children.item(i).getNodeName().equals("assignment")) {
-                Element assignment = (Element) children.item(i);
-                String reference = getReference(assignment);
-                if (reference == null || reference.isEmpty()) continue;
-                if (securityIndex == 1 && reference.endsWith("securities/security")) {
-                    foundAssignments.add(assignment);
-                    continue;
-                }
-                if (!(reference.contains("[") && reference.contains("]"))) continue;
-                String foundIndex = reference.substring(reference.indexOf('[') + 1, reference.indexOf(']'));
-                if (Integer.parseInt(foundIndex) == securityIndex) foundAssignments.add(assignment);
-            }
-        }
-        return foundAssignments;
-    }
-
     Element updateWeightOfAssignment(Element assignment, String weight) {
-        Node weightNode = xmlHelper.getFirstChild(assignment, "weight");
+        Node weightNode = xmlHelper.getChildElement(assignment, "weight");
         weightNode.setTextContent(weight);
 
         return assignment;
     }
 
-    void removeOrphanIndustryAssignment(Node industryFromPortfolio, String industryNameFromPortfolio, List<Security> allSecurities) {
+    void removeOrphanIndustryAssignment(Node industryFromPortfolio, String industryNameFromPortfolio, List<Security> allSecurities, AssignmentIndex assignmentIndex) {
         for (Security security : allSecurities) {
             logger.fine("Security: " + security);
-            Element assignment = findAssignmentBySecurityIndex(industryFromPortfolio, security.getIndexInPortfolio() + 1);
+            Element assignment = assignmentIndex.getAssignment(industryFromPortfolio, security.getIndexInPortfolio() + 1);
             if (assignment != null) {
                 // there is an assignment from this security to the current industry-node, but should it be removed?
                 boolean found = false;
                 for (String industryNameFromSecurity : security.getIndustries().keySet()) {
-                    String optimizedIndustryNameFromSecurity = optimizeIndustryNameFromSecurity(industryNameFromSecurity);
-                    if ("DE0008402215".equalsIgnoreCase(security.getIsin())) {
-                        // Hannover Rück is classified as "Versicherung" ?!?
-                        optimizedIndustryNameFromSecurity = "Rückversicherungen";
-                    }
+                    // the same industry name as assigned by importIndustries
+                    String optimizedIndustryNameFromSecurity = optimizeIndustryNameFromSecurity(security.getIsin(), industryNameFromSecurity);
                     // skip not matching industries, e.g. "diverse Branchen"
                     if (optimizedIndustryNameFromSecurity.isEmpty()) continue;
 
@@ -770,7 +786,7 @@ public class PortfolioDocumentService {
                 }
                 if (!found) {
                     // maybe this holding was contained before, but now it isn't
-                    assignment.getParentNode().removeChild(assignment);
+                    assignmentIndex.remove(industryFromPortfolio, security.getIndexInPortfolio() + 1, assignment);
                 }
             }
         }
@@ -781,7 +797,7 @@ public class PortfolioDocumentService {
         for (int indexClassification = 0; indexClassification < allClassificationsFromPortfolioList.getLength(); indexClassification++) {
             Node classificationFromPortfolioNode = allClassificationsFromPortfolioList.item(indexClassification);
             if (classificationFromPortfolioNode.getNodeType() == Node.ELEMENT_NODE) {
-                String classificationNameFromPortfolio = xmlHelper.getTextContent((Element) classificationFromPortfolioNode, "name");
+                String classificationNameFromPortfolio = xmlHelper.getChildTextContent((Element) classificationFromPortfolioNode, "name");
                 // adjust name for country "USA"
                 if (classificationNameFromPortfolio.equals("Vereinigte Staaten")) {
                     classificationNameFromPortfolio = "USA";
@@ -792,90 +808,32 @@ public class PortfolioDocumentService {
         return null;
     }
 
-    Element findClassificationBySimilarName(Element parent, String name) {
-        NodeList allClassificationsFromPortfolioList = parent.getElementsByTagName("classification");
-        for (int indexClassification = 0; indexClassification < allClassificationsFromPortfolioList.getLength(); indexClassification++) {
-            Node classificationFromPortfolioNode = allClassificationsFromPortfolioList.item(indexClassification);
-            if (classificationFromPortfolioNode.getNodeType() == Node.ELEMENT_NODE) {
-                String classificationNameFromPortfolio = xmlHelper.getTextContent((Element) classificationFromPortfolioNode, "name");
-                // adjust name for country "USA"
-                if (classificationNameFromPortfolio.equals("Vereinigte Staaten")) {
-                    classificationNameFromPortfolio = "USA";
-                }
-                if (isNameSimilar(name, classificationNameFromPortfolio))
-                    return (Element) classificationFromPortfolioNode;
-            }
+    /**
+     * @return the first classification in document order with a name similar to the given one or null
+     */
+    Element findClassificationBySimilarName(ClassificationIndex classificationIndex, String name) {
+        String lowerCaseName = name.toLowerCase();
+        for (int position : classificationIndex.getCandidates(name)) {
+            String classificationNameFromPortfolio = classificationIndex.getName(position);
+            if (isNameSimilar(name, lowerCaseName, classificationNameFromPortfolio, classificationNameFromPortfolio.toLowerCase()))
+                return classificationIndex.getClassification(position);
         }
         return null;
     }
 
-    List<Security> findSecuritiesByHolding(List<Security> allSecurities, TreeMap<String, List<String>> allStockNames, String holdingName) {
-        Set<Security> foundSecurities = new HashSet<>();
-        for (Security security : allSecurities) {
-            // find security that contains the current stock identified by any similar name
-            if (security.getHoldings().containsKey(holdingName)) {
-                // primary name
-                foundSecurities.add(security);
-            }
-            // alternative names
-            List<String> alternativeNames = allStockNames.get(holdingName);
-            if (alternativeNames != null) {
-                for (String alternativeName : alternativeNames) {
-                    if (security.getHoldings().containsKey(alternativeName)) {
-                        foundSecurities.add(security);
-                    }
-                }
-            }
-        }
-        return new ArrayList<>(foundSecurities);
-    }
-
-    boolean hasSecurityHolding(Security security, TreeMap<String, List<String>> allStockNames, String holdingName) {
+    boolean hasSecurityHolding(Security security, HoldingIndex holdingIndex, String holdingName) {
         if (security != null) {
             // find security that contains the current stock identified by any similar name
-            if (security.getHoldings().containsKey(holdingName)) {
-                // primary name
-                return true;
-            } else {
-                // alternative names
-                List<String> alternativeNames = allStockNames.get(holdingName);
-                if (alternativeNames != null) {
-                    for (String alternativeName : alternativeNames) {
-                        if (security.getHoldings().containsKey(alternativeName)) {
-                            return true;
-                        }
-                    }
-                }
-            }
+            if (holdingIndex.hasHolding(security, holdingName)) return true;
             // maybe name is written only similar?
-            for (String existingName : security.getHoldings().keySet()) {
-                if (isNameSimilar(holdingName, existingName)) return true;
+            String lowerCaseHoldingName = holdingName.toLowerCase();
+            for (String existingName : holdingIndex.getSimilarHoldingCandidates(security, holdingName)) {
+                if (isNameSimilar(holdingName, lowerCaseHoldingName, existingName, existingName.toLowerCase())) return true;
             }
         }
         return false;
     }
 
-    List<Integer> getAllPercentagesOfHoldingsForSecurityByStockname(Security security, TreeMap<String, List<String>> allStockNames, String holdingName) {
-        List<Integer> percentages = new ArrayList<>();
-        if (security != null) {
-            // find security that contains the current stock identified by any similar name
-            if (security.getHoldings().containsKey(holdingName)) {
-                // primary name
-                percentages.add(getPercentageOfHolding(security, holdingName));
-            }
-            // alternative names
-            List<String> alternativeNames = allStockNames.get(holdingName);
-            if (alternativeNames != null) {
-                for (String alternativeName : alternativeNames) {
-                    if (security.getHoldings().containsKey(alternativeName)) {
-                        percentages.add(getPercentageOfHolding(security, alternativeName));
-                    }
-                }
-            }
-        }
-        return percentages;
-    }
-
     int getPercentageOfHolding(Security security, String holdingName) {
         return (int) Math.round(security.getPercentageOfHolding(holdingName) * 100.0);
     }
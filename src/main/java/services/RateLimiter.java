@@ -0,0 +1,99 @@
+package services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket per host limiting the number of requests sent to each provider.
+ * The rate of a host is halved whenever it throttles us and recovers step by step with each successful request,
+ * so concurrent lookups settle at the highest rate a provider tolerates.
+ */
+public class RateLimiter {
+    private static final double MINIMUM_REQUESTS_PER_SECOND = 0.2;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param requestsPerSecond maximum rate per host, 0 or less disables limiting
+     * @param burst             number of requests that may be sent at once after an idle period
+     */
+    public RateLimiter(double requestsPerSecond, int burst) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = Math.max(1, burst);
+    }
+
+    /**
+     * @return limiter letting every request pass immediately
+     */
+    public static RateLimiter unlimited() {
+        return new RateLimiter(0, 1);
+    }
+
+    public boolean isEnabled() {
+        return requestsPerSecond > 0;
+    }
+
+    /**
+     * Blocks until a request to the given host is allowed.
+     */
+    public void acquire(String host) throws InterruptedException {
+        if (!isEnabled()) return;
+        long waitNanos = getBucket(host).reserve();
+        if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+
+    /**
+     * The host signalled overload (e.g. HTTP 429), so its rate is reduced.
+     */
+    public void throttled(String host) {
+        if (isEnabled()) getBucket(host).decreaseRate();
+    }
+
+    /**
+     * A request to the host succeeded, so its rate may approach the configured maximum again.
+     */
+    public void succeeded(String host) {
+        if (isEnabled()) getBucket(host).increaseRate();
+    }
+
+    double getCurrentRate(String host) {
+        return getBucket(host).getRate();
+    }
+
+    private TokenBucket getBucket(String host) {
+        return buckets.computeIfAbsent(host == null ? "" : host, h -> new TokenBucket());
+    }
+
+    private class TokenBucket {
+        private double rate = requestsPerSecond;
+        private double tokens = burst;
+        private long lastRefillNanos = System.nanoTime();
+
+        /**
+         * Takes one token, even if the bucket is empty, and returns how long the caller has to wait for it.
+         */
+        synchronized long reserve() {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * rate / TimeUnit.SECONDS.toNanos(1));
+            lastRefillNanos = now;
+            tokens -= 1;
+            if (tokens >= 0) return 0;
+            return (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        synchronized double getRate() {
+            return rate;
+        }
+
+        synchronized void decreaseRate() {
+            rate = Math.max(Math.min(MINIMUM_REQUESTS_PER_SECOND, requestsPerSecond), rate / 2);
+        }
+
+        synchronized void increaseRate() {
+            rate = Math.min(requestsPerSecond, rate + requestsPerSecond / 10);
+        }
+    }
+
+}
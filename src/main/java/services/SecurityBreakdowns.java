@@ -0,0 +1,218 @@
+package services;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holdings, branches and countries of a security read directly from the onvista JSON (full page or compact,
+ * see {@link CompactSecurityJson}) with a streaming reader. Only "props.pageProps.data.breakdowns" is looked at,
+ * every other subtree is skipped without building a tree.
+ */
+public class SecurityBreakdowns {
+    private static final String CASH = "Barmittel";
+    private final Map<String, Double> holdings = new HashMap<>();
+    private final Map<String, Double> industries = new HashMap<>();
+    private final Map<String, Double> countries = new HashMap<>();
+    private boolean breakdownsFound;
+    private boolean compactFormat;
+
+    private SecurityBreakdowns() {
+    }
+
+    /**
+     * @param json the JSON document, the reader is not closed
+     */
+    public static SecurityBreakdowns read(Reader json) throws IOException {
+        SecurityBreakdowns securityBreakdowns = new SecurityBreakdowns();
+        JsonReader reader = new JsonReader(json);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (CompactSecurityJson.FORMAT_PROPERTY.equals(name) && reader.peek() == JsonToken.NUMBER) {
+                securityBreakdowns.compactFormat = reader.nextInt() == CompactSecurityJson.FORMAT_VERSION;
+            } else if ("props".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("pageProps".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            if ("data".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                                securityBreakdowns.readData(reader);
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                        reader.endObject();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return securityBreakdowns;
+    }
+
+    private void readData(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("breakdowns".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                breakdownsFound = true;
+                readBreakdowns(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readBreakdowns(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                reader.skipValue();
+            } else if ("fundsHoldingList".equals(name)) {
+                readHoldings(reader);
+            } else if ("branchBreakdown".equals(name)) {
+                readBreakdown(reader, industries);
+            } else if ("countryBreakdown".equals(name)) {
+                readBreakdown(reader, countries);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readHoldings(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("list".equals(reader.nextName()) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readHolding(reader);
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readHolding(JsonReader reader) throws IOException {
+        String holdingName = null;
+        Double percentage = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("instrument".equals(name) && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if ("name".equals(reader.nextName())) {
+                        holdingName = reader.nextString();
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else if ("investmentPct".equals(name)) {
+                percentage = reader.nextDouble();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (holdingName == null || percentage == null) {
+            throw new IOException("Holding without name or percentage at " + reader.getPath());
+        }
+        holdings.put(holdingName, percentage);
+    }
+
+    /**
+     * Cash is ignored, except for the breakdown of instruments; as the name of the breakdown may follow its list,
+     * a cash entry is only added when the whole breakdown has been read.
+     */
+    private void readBreakdown(JsonReader reader, Map<String, Double> result) throws IOException {
+        String breakdownName = null;
+        Double cashPercentage = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if ("nameFundsBreakdown".equals(name)) {
+                breakdownName = reader.nextString();
+            } else if ("list".equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    String entryName = null;
+                    Double percentage = null;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String entryProperty = reader.nextName();
+                        if ("nameBreakdown".equals(entryProperty)) {
+                            entryName = reader.nextString();
+                        } else if ("investmentPct".equals(entryProperty)) {
+                            percentage = reader.nextDouble();
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    if (entryName == null || percentage == null) {
+                        throw new IOException("Breakdown entry without name or percentage at " + reader.getPath());
+                    }
+                    if (CASH.equals(entryName)) {
+                        cashPercentage = percentage;
+                    } else {
+                        result.put(entryName, percentage);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (cashPercentage != null && "Instrument".equals(breakdownName)) {
+            result.put(CASH, cashPercentage);
+        }
+    }
+
+    /**
+     * @return false if the JSON has no breakdowns at all, e.g. for shares
+     */
+    public boolean hasBreakdowns() {
+        return breakdownsFound;
+    }
+
+    public Map<String, Double> getHoldings() {
+        return Collections.unmodifiableMap(holdings);
+    }
+
+    public Map<String, Double> getIndustries() {
+        return Collections.unmodifiableMap(industries);
+    }
+
+    public Map<String, Double> getCountries() {
+        return Collections.unmodifiableMap(countries);
+    }
+
+    /**
+     * @return true if the JSON has been reduced by {@link CompactSecurityJson} already
+     */
+    public boolean isCompactFormat() {
+        return compactFormat;
+    }
+
+}
@@ -1,29 +1,33 @@
 package services;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import cache.CacheArtifact;
+import cache.CachePolicy;
+import cache.CacheStore;
+import cache.CacheValidators;
+import cache.FileCacheStore;
+import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 import models.SecurityType;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.nodes.TextNode;
 import org.jsoup.select.Elements;
 
-import java.io.*;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.net.URI;
-import java.net.URL;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.EnumMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Objects;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * One object of this class represents a security (share or ETF) containing data from a provider on the internet.
@@ -33,8 +37,15 @@ public class SecurityDetails {
     public static final String ONVISTA_DETAILS_REQUEST_URL = "https://www.onvista.de/etf/anlageschwerpunkt/";
     public static final String ONVISTA_URL = "https://www.onvista.de";
     private static final Logger logger = Logger.getLogger(SecurityDetails.class.getCanonicalName());
+    private final HttpFetcher httpFetcher;
+    private final CacheStore cacheStore;
+    private final CachePolicy cachePolicy;
+    // HTTP validators of the cached artifacts, read when needed
+    private Map<CacheArtifact, CacheValidators> validators;
     private String detailsRequestPath;
-    private JsonObject rootNode;
+    // compact JSON of the onvista page, see CompactSecurityJson
+    private String json;
+    private SecurityBreakdowns breakdowns;
     private final String isin;
     private String name;
     private String industry;
@@ -42,133 +53,250 @@ public class SecurityDetails {
     private SecurityType securityType;
 
     public SecurityDetails(String cachePath, String isin) throws IOException, InterruptedException {
+        this(cachePath, isin, HttpFetcher.getDefault());
+    }
+
+    public SecurityDetails(String cachePath, String isin, HttpFetcher httpFetcher) throws IOException, InterruptedException {
+        this(new FileCacheStore(cachePath), isin, httpFetcher);
+    }
+
+    public SecurityDetails(CacheStore cacheStore, String isin, HttpFetcher httpFetcher) throws IOException, InterruptedException {
+        this(cacheStore, CachePolicy.unlimited(), isin, httpFetcher);
+    }
+
+    /**
+     * @param cachePolicy cached artifacts which are stale according to this policy are loaded again; if that fails
+     *                    the stale artifact is used
+     */
+    public SecurityDetails(CacheStore cacheStore, CachePolicy cachePolicy, String isin, HttpFetcher httpFetcher) throws IOException, InterruptedException {
         this.isin = isin;
-        initializeCache(cachePath);
-        initializeSecurityType(cachePath, isin);
-        initializeDetailsRequestUrl(cachePath, isin);
-        initializeJsonRootNode(cachePath, isin);
-        initializeMetaData(cachePath, isin);
+        this.httpFetcher = httpFetcher;
+        this.cacheStore = cacheStore;
+        this.cachePolicy = cachePolicy;
+        initializeSecurityType();
+        initializeDetailsRequestUrl();
+        initializeJsonRootNode();
+        initializeMetaData();
     }
 
-    private void initializeMetaData(String cachePath, String isin) {
+    private void initializeMetaData() {
         if (isETF() || isFonds() || isCommodity()) {
             industry = "";
             country = "";
             name = "";
         } else {
-            File industryAndNameCacheFileName = new File(cachePath, isin + "-metadata.txt");
-            try (Stream<String> lines = Files.lines(Paths.get(industryAndNameCacheFileName.toURI()), StandardCharsets.UTF_8)) {
-                List<String> input = lines.collect(Collectors.toList());
-                if (!input.isEmpty()) {
-                    industry = input.get(0);
-                    country = input.get(1);
-                    name = input.get(2);
-                }
-            } catch (IOException e) {
-                logger.info("Branch for " + isin + " not found in cache, loading...");
-                loadSecurityMetaData();
-                try (PrintWriter savingImport = new PrintWriter(industryAndNameCacheFileName, StandardCharsets.UTF_8)) {
-                    savingImport.print(industry + "\n");
-                    savingImport.print(country + "\n");
-                    savingImport.print(name + "\n");
-                } catch (IOException fnfe) {
-                    logger.warning("Error writing branch for " + isin + ": " + fnfe.getMessage());
+            List<String> input = readCachedLines(CacheArtifact.METADATA);
+            if (input != null && !isStale(CacheArtifact.METADATA)) {
+                setMetaData(input);
+            } else {
+                logLoading("Branch", input != null);
+                if (loadSecurityMetaData() || input == null) {
+                    writeCache(CacheArtifact.METADATA, industry + "\n" + country + "\n" + name + "\n", "branch");
+                } else {
+                    logger.warning("Using stale branch for " + isin);
+                    setMetaData(input);
                 }
             }
         }
     }
 
-    private void initializeJsonRootNode(String cachePath, String isin) throws IOException, InterruptedException {
-        File jsonUrl = new File(cachePath, isin + ".json");
+    private void setMetaData(List<String> input) {
+        if (!input.isEmpty()) {
+            industry = input.get(0);
+            country = input.get(1);
+            name = input.get(2);
+        }
+    }
+
+    private void initializeJsonRootNode() throws IOException, InterruptedException {
+        boolean stale = isStale(CacheArtifact.JSON);
+        String cachedJson = null;
+        SecurityBreakdowns cachedBreakdowns = null;
+        boolean upgraded = false;
         try {
-            rootNode = JsonParser.parseReader(new FileReader(jsonUrl, StandardCharsets.UTF_8)).getAsJsonObject();
+            cachedJson = cacheStore.read(isin, CacheArtifact.JSON);
+            if (cachedJson == null) throw new FileNotFoundException(CacheArtifact.JSON.getFileName(isin));
+            // also checks that the cached JSON is complete; compacting keeps the breakdowns
+            cachedBreakdowns = SecurityBreakdowns.read(new StringReader(cachedJson));
+            if (!cachedBreakdowns.isCompactFormat()) {
+                logger.fine("Upgrading cached JSON for " + isin + " to the compact format");
+                cachedJson = CompactSecurityJson.compact(JsonParser.parseString(cachedJson).getAsJsonObject()).toString();
+                upgraded = true;
+                // a stale JSON is written after revalidation
+                if (!stale) writeCache(CacheArtifact.JSON, cachedJson + "\n", "JSON");
+            }
         } catch (Exception e) {
-            logger.info("JSON for " + isin + " not found in cache, loading...");
-            String jsonResponsePart;
-            if (isETF() || isFonds()) {
-                String htmlPageAnlageschwerpunkt = readStringFromURL(ONVISTA_URL + detailsRequestPath);
-                jsonResponsePart = extractJsonPartFromHtml(htmlPageAnlageschwerpunkt);
+            cachedJson = null;
+            cachedBreakdowns = null;
+        }
+        if (cachedJson != null && !stale) {
+            json = cachedJson;
+            breakdowns = cachedBreakdowns;
+            return;
+        }
+        logLoading("JSON", cachedJson != null);
+        String url;
+        if (isETF() || isFonds()) {
+            url = ONVISTA_URL + detailsRequestPath;
+        } else {
+            url = "http://www.onvista.de/suche.html?SEARCH_VALUE=" + isin + "&SELECTED_TOOL=ALL_TOOLS";
+        }
+        try {
+            CacheValidators validators = cachedJson != null ? getValidators(CacheArtifact.JSON) : CacheValidators.NONE;
+            // a throttled or truncated page has no JSON part, the fetcher retries the request in that case
+            HttpFetcher.ConditionalResponse<String> response = httpFetcher.fetchIfModified(url, validators, this::readCompactJson);
+            if (response.isModified()) {
+                json = response.getContent();
+                writeCache(CacheArtifact.JSON, json + "\n", "JSON");
             } else {
-                HttpClient httpClient = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.ALWAYS).build();
-                HttpRequest request = HttpRequest.newBuilder().uri(URI.create("http://www.onvista.de/suche.html?SEARCH_VALUE=" + isin + "&SELECTED_TOOL=ALL_TOOLS")).build();
-                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-                jsonResponsePart = extractJsonPartFromHtml(response.body());
-            }
-            rootNode = JsonParser.parseString(jsonResponsePart).getAsJsonObject();
-            try (PrintWriter savingImport = new PrintWriter(jsonUrl, StandardCharsets.UTF_8)) {
-                savingImport.print(rootNode + "\n");
-            } catch (IOException fnfe) {
-                logger.warning("Error writing JSON for " + isin + ": " + fnfe.getMessage());
+                logger.info("JSON for " + isin + " not modified");
+                json = cachedJson;
+                breakdowns = cachedBreakdowns;
+                if (upgraded) {
+                    writeCache(CacheArtifact.JSON, json + "\n", "JSON");
+                } else {
+                    touchCache(CacheArtifact.JSON);
+                }
             }
+            updateValidators(CacheArtifact.JSON, response.getValidators());
+        } catch (IOException e) {
+            if (cachedJson == null) throw e;
+            logger.warning("Using stale JSON for " + isin + ": " + e.getMessage());
+            json = cachedJson;
+            breakdowns = cachedBreakdowns;
         }
     }
 
-    private void initializeDetailsRequestUrl(String cachePath, String isin) {
-        File requestUrl = new File(cachePath, isin + ".txt");
-        try (Stream<String> lines = Files.lines(Paths.get(requestUrl.toURI()), StandardCharsets.UTF_8)) {
-            List<String> input = lines.collect(Collectors.toList());
-            if (!input.isEmpty()) detailsRequestPath = input.get(0);
+    private void initializeDetailsRequestUrl() throws InterruptedException {
+        List<String> input = readCachedLines(CacheArtifact.DETAILS_REQUEST_PATH);
+        String cachedPath = input != null && !input.isEmpty() ? input.get(0) : null;
+        if (input != null && !isStale(CacheArtifact.DETAILS_REQUEST_PATH)) {
+            if (cachedPath != null) detailsRequestPath = cachedPath;
+            return;
+        }
+        logLoading("DetailsRequestPath", input != null);
+        String url = ONVISTA_DETAILS_REQUEST_URL + isin;
+        try {
+            CacheValidators validators = cachedPath != null ? getValidators(CacheArtifact.DETAILS_REQUEST_PATH) : CacheValidators.NONE;
+            HttpFetcher.ConditionalResponse<String> response = httpFetcher.fetchIfModified(url, validators, httpFetcher::readString);
+            if (response.isModified()) {
+                detailsRequestPath = response.getContent();
+                writeCache(CacheArtifact.DETAILS_REQUEST_PATH, detailsRequestPath + "\n", "DetailsRequestPath");
+            } else {
+                logger.info("DetailsRequestPath for " + isin + " not modified");
+                detailsRequestPath = cachedPath;
+                touchCache(CacheArtifact.DETAILS_REQUEST_PATH);
+            }
+            updateValidators(CacheArtifact.DETAILS_REQUEST_PATH, response.getValidators());
         } catch (IOException e) {
-            logger.info("DetailsRequestPath for " + isin + " not found in cache, loading...");
-            detailsRequestPath = readStringFromURL(ONVISTA_DETAILS_REQUEST_URL + isin);
-            try (PrintWriter savingImport = new PrintWriter(requestUrl, StandardCharsets.UTF_8)) {
-                savingImport.print(detailsRequestPath + "\n");
-            } catch (IOException fnfe) {
-                logger.warning("Error writing DetailsRequestPath for " + isin + ": " + fnfe.getMessage());
+            logger.warning("Error reading URL \"" + url + "\": " + e.getMessage());
+            if (cachedPath != null) {
+                logger.warning("Using stale DetailsRequestPath for " + isin);
+                detailsRequestPath = cachedPath;
+            } else {
+                detailsRequestPath = "";
+                writeCache(CacheArtifact.DETAILS_REQUEST_PATH, detailsRequestPath + "\n", "DetailsRequestPath");
+            }
+        }
+    }
+
+    /**
+     * @return validators of the cached artifact, see {@link CacheValidators}
+     */
+    private CacheValidators getValidators(CacheArtifact artifact) {
+        if (validators == null) {
+            try {
+                validators = CacheValidators.parse(cacheStore.read(isin, CacheArtifact.VALIDATORS));
+            } catch (IOException e) {
+                logger.warning("Error reading " + CacheArtifact.VALIDATORS.getFileName(isin) + " from cache: " + e.getMessage());
+                validators = new EnumMap<>(CacheArtifact.class);
             }
         }
+        return validators.getOrDefault(artifact, CacheValidators.NONE);
     }
 
-    private void initializeCache(String cachePath) {
-        File cacheDir = new File(cachePath);
-        //noinspection ResultOfMethodCallIgnored
-        cacheDir.mkdirs();
+    private void updateValidators(CacheArtifact artifact, CacheValidators newValidators) {
+        CacheValidators oldValidators = getValidators(artifact);
+        if (oldValidators.isEmpty() && newValidators.isEmpty()) return;
+        if (Objects.equals(oldValidators.getEtag(), newValidators.getEtag())
+                && Objects.equals(oldValidators.getLastModified(), newValidators.getLastModified())) return;
+        validators.put(artifact, newValidators);
+        writeCache(CacheArtifact.VALIDATORS, CacheValidators.format(validators), "validators");
     }
 
-    String readStringFromURL(String requestURL) {
-        Scanner scanner = null;
-        String result = "";
+    private void touchCache(CacheArtifact artifact) {
         try {
-            scanner = new Scanner(new URL(requestURL).openStream(), StandardCharsets.UTF_8);
-            scanner.useDelimiter("\\A");
-            result = scanner.hasNext() ? scanner.next() : "";
-        } catch (Exception e) {
-            logger.warning("Error reading URL \"" + requestURL + "\": " + e.getMessage());
-        } finally {
-            assert scanner != null;
-            scanner.close();
+            cacheStore.touch(isin, artifact);
+        } catch (IOException e) {
+            logger.warning("Error touching " + artifact.getFileName(isin) + " in cache: " + e.getMessage());
         }
-        return result;
     }
 
-    public JsonObject getBreakDownForSecurity() {
-        return rootNode.getAsJsonObject("props")
-                .getAsJsonObject("pageProps")
-                .getAsJsonObject("data")
-                .getAsJsonObject("breakdowns");
+    /**
+     * @return true if the artifact is cached and older than its time to live
+     */
+    private boolean isStale(CacheArtifact artifact) {
+        try {
+            return cachePolicy.isStale(artifact, cacheStore.getLastModified(isin, artifact), Instant.now());
+        } catch (IOException e) {
+            logger.warning("Error reading age of " + artifact.getFileName(isin) + " from cache: " + e.getMessage());
+            return false;
+        }
     }
 
-    public String getCountryForSecurity() {
-        JsonObject jsonObject = rootNode.getAsJsonObject("props")
-                .getAsJsonObject("pageProps")
-                .getAsJsonObject("data")
-                .getAsJsonObject("snapshot")
-                .getAsJsonObject("company");
-        if (jsonObject != null) {
-            JsonElement nameCountry = jsonObject.get("nameCountry");
-            String country = nameCountry.getAsString();
-            if (country == null || country.isEmpty()) {
-                if (isin != null && isin.toUpperCase().startsWith("US")) country = "Vereinigte Staaten";
-            }
-            if ("Vereinigte Staaten".equalsIgnoreCase(country)) country = "USA";
+    private void logLoading(String description, boolean stale) {
+        if (stale) {
+            logger.info(description + " for " + isin + " is stale, refreshing...");
+        } else {
+            logger.info(description + " for " + isin + " not found in cache, loading...");
+        }
+    }
+
+    /**
+     * @return the lines of the cached artifact or null if it is not cached (or not readable)
+     */
+    private List<String> readCachedLines(CacheArtifact artifact) {
+        try {
+            String content = cacheStore.read(isin, artifact);
+            return content == null ? null : content.lines().collect(Collectors.toList());
+        } catch (IOException e) {
+            logger.warning("Error reading " + artifact.getFileName(isin) + " from cache: " + e.getMessage());
+            return null;
         }
+    }
 
+    private void writeCache(CacheArtifact artifact, String content, String description) {
+        try {
+            cacheStore.write(isin, artifact, content);
+        } catch (IOException e) {
+            logger.warning("Error writing " + description + " for " + isin + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Holdings, branches and countries read without building the JSON tree, only once for this object. As it is
+     * shared by all securities with the same ISIN, the maps are read-only and must be copied to change them.
+     */
+    public synchronized SecurityBreakdowns getBreakdowns() throws IOException {
+        if (breakdowns == null) {
+            breakdowns = SecurityBreakdowns.read(new StringReader(json));
+        }
+        return breakdowns;
+    }
+
+    public String getCountryForSecurity() {
         return country;
     }
 
-    String extractJsonPartFromHtml(String htmlPageAnlageschwerpunkt) {
-        String[] splitResponse = htmlPageAnlageschwerpunkt.split("<script id=\"__NEXT_DATA__\" type=\"application/json\">");
-        return splitResponse[1].split("</script>")[0];
+    /**
+     * Parses only the JSON part of the page while it is received, the page itself is not kept in memory.
+     */
+    private String readCompactJson(HttpResponse<InputStream> response) throws IOException {
+        try (Reader jsonPart = new InputStreamReader(new NextDataInputStream(httpFetcher.openBody(response)), httpFetcher.getCharset(response))) {
+            return CompactSecurityJson.compact(JsonParser.parseReader(jsonPart).getAsJsonObject()).toString();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Page for " + isin + " contains no valid JSON part: " + e.getMessage(), e);
+        }
     }
 
     public boolean isETF() {
@@ -187,11 +315,10 @@ public class SecurityDetails {
         return SecurityType.COMMODITY.equals(securityType);
     }
 
-    JsonObject getRootNode() {
-        return rootNode;
-    }
-
-    void loadSecurityMetaData() {
+    /**
+     * @return false if the page could not be loaded
+     */
+    boolean loadSecurityMetaData() {
         industry = "";
         country = "";
         name = "";
@@ -199,7 +326,7 @@ public class SecurityDetails {
             Element td;
             List<TextNode> textNodes;
             String url = "https://app.parqet.com/wertpapiere/" + isin;
-            Document doc = Jsoup.connect(url).get();
+            Document doc = httpFetcher.fetchDocument(url);
             Elements elements = doc.selectXpath("//td[contains(text(), \"Industrie\")]");
             if (!elements.isEmpty()) {
                 td = elements.get(0);
@@ -226,9 +353,14 @@ public class SecurityDetails {
                 logger.fine("found country \"" + country + "\" for " + isin);
                 this.country = country;
             }
+            return true;
         } catch (IOException e) {
             logger.warning("Error loading branch for " + isin + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Loading branch for " + isin + " was interrupted");
         }
+        return false;
     }
 
     public String getIndustry() {
@@ -245,39 +377,41 @@ public class SecurityDetails {
 
     SecurityType loadSecurityType() throws IOException, InterruptedException {
         String url = "https://app.parqet.com/wertpapiere/" + isin;
-        HttpClient httpClient = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.ALWAYS).build();
-        HttpRequest request = HttpRequest.newBuilder().uri(URI.create(url)).build();
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-        if (response.uri().getPath().startsWith("/etf/")) {
+        URI finalUri = httpFetcher.fetchFinalUri(url);
+        if (finalUri.getPath().startsWith("/etf/")) {
             return SecurityType.ETF;
         }
-        if (response.uri().getPath().startsWith("/fonds/")) {
+        if (finalUri.getPath().startsWith("/fonds/")) {
             return SecurityType.FONDS;
         }
-        if (response.uri().getPath().startsWith("/aktien/")) {
+        if (finalUri.getPath().startsWith("/aktien/")) {
             return SecurityType.SHARE;
         }
         // might cause errors!!!
         return SecurityType.COMMODITY;
     }
 
-    void initializeSecurityType(String cachePath, String isin) throws IOException, InterruptedException {
-        File securityTypeCacheFileName = new File(cachePath, isin + "-type.txt");
-        try (Stream<String> lines = Files.lines(Paths.get(securityTypeCacheFileName.toURI()), StandardCharsets.UTF_8)) {
-            List<String> input = lines.collect(Collectors.toList());
-            if (!input.isEmpty()) {
-                String type = input.get(0);
-                securityType = SecurityType.valueOf(type);
-            }
-        } catch (IOException e) {
-            logger.info("SecurityType for " + isin + " not found in cache, loading...");
-            securityType = loadSecurityType();
-            try (PrintWriter savingCache = new PrintWriter(securityTypeCacheFileName, StandardCharsets.UTF_8)) {
-                savingCache.print(securityType + "\n");
-            } catch (IOException fnfe) {
-                logger.warning("Error writing SecurityType for " + isin + ": " + fnfe.getMessage());
+    void initializeSecurityType() throws IOException, InterruptedException {
+        List<String> input = readCachedLines(CacheArtifact.SECURITY_TYPE);
+        if (input != null && !isStale(CacheArtifact.SECURITY_TYPE)) {
+            setSecurityType(input);
+        } else {
+            logLoading("SecurityType", input != null);
+            try {
+                securityType = loadSecurityType();
+                writeCache(CacheArtifact.SECURITY_TYPE, securityType + "\n", "SecurityType");
+            } catch (IOException e) {
+                if (input == null) throw e;
+                logger.warning("Using stale SecurityType for " + isin + ": " + e.getMessage());
+                setSecurityType(input);
             }
         }
+    }
 
+    private void setSecurityType(List<String> input) {
+        if (!input.isEmpty()) {
+            String type = input.get(0);
+            securityType = SecurityType.valueOf(type);
+        }
     }
 }
@@ -0,0 +1,36 @@
+package services;
+
+import models.Security;
+
+import java.util.Collection;
+
+/**
+ * Securities addressable by their index in the portfolio, e.g. to resolve the reference "securities/security[N]" of
+ * an assignment (index N - 1) back to the security. The securities are held in an array as dense as the indices.
+ */
+class SecurityRegistry {
+    private final Security[] securitiesByIndex;
+
+    SecurityRegistry(Collection<Security> securities) {
+        int maxIndex = -1;
+        for (Security security : securities) {
+            if (security != null) maxIndex = Math.max(maxIndex, security.getIndexInPortfolio());
+        }
+        securitiesByIndex = new Security[maxIndex + 1];
+        for (Security security : securities) {
+            // the first security with an index wins, like a search in list order
+            if (security != null && securitiesByIndex[security.getIndexInPortfolio()] == null) {
+                securitiesByIndex[security.getIndexInPortfolio()] = security;
+            }
+        }
+    }
+
+    /**
+     * @return the security with the index in the portfolio or null if there is none
+     */
+    Security get(int indexInPortfolio) {
+        if (indexInPortfolio < 0 || indexInPortfolio >= securitiesByIndex.length) return null;
+        return securitiesByIndex[indexInPortfolio];
+    }
+
+}
@@ -1,86 +1,227 @@
 package services;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
+import cache.CachePolicy;
+import cache.CacheStore;
+import cache.FileCacheStore;
 import models.Security;
 import models.SecurityType;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import xml.PortfolioSecurity;
+import xml.XmlFileReader;
 import xml.XmlHelper;
 
-import java.text.DecimalFormat;
+import javax.xml.stream.XMLStreamException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import static constants.PathConstants.CACHE_PATH;
 
 public class SecurityService {
     private static final Logger logger = Logger.getLogger(SecurityService.class.getCanonicalName());
-    private static final DecimalFormat DECIMAL_FORMAT = new DecimalFormat("0.00");
     XmlHelper xmlHelper = new XmlHelper();
-    private String cachePath = CACHE_PATH;
+    XmlFileReader xmlFileReader = new XmlFileReader();
+    private final int parallelism;
+    private final HttpFetcher httpFetcher;
+    private final CacheStore cacheStore;
+    private final CachePolicy cachePolicy;
+    // details already loaded (or being loaded) in this run, so each ISIN is fetched and cached only once
+    private final Map<String, CompletableFuture<SecurityDetails>> securityDetailsByIsin = new ConcurrentHashMap<>();
 
     public SecurityService() {
+        this(CACHE_PATH);
     }
 
     public SecurityService(String cachePath) {
-        this.cachePath = cachePath;
+        this(cachePath, 1);
+    }
+
+    /**
+     * @param cachePath   directory used for caching the details of each security
+     * @param parallelism number of securities resolved concurrently, 1 processes them one after another
+     */
+    public SecurityService(String cachePath, int parallelism) {
+        this(cachePath, parallelism, HttpFetcher.getDefault());
+    }
+
+    /**
+     * @param cachePath   directory used for caching the details of each security
+     * @param parallelism number of securities resolved concurrently, 1 processes them one after another
+     * @param httpFetcher shared by all lookups of remote details
+     */
+    public SecurityService(String cachePath, int parallelism, HttpFetcher httpFetcher) {
+        this(new FileCacheStore(cachePath), parallelism, httpFetcher);
+    }
+
+    /**
+     * @param cacheStore  used for caching the details of each security
+     * @param parallelism number of securities resolved concurrently, 1 processes them one after another
+     * @param httpFetcher shared by all lookups of remote details
+     */
+    public SecurityService(CacheStore cacheStore, int parallelism, HttpFetcher httpFetcher) {
+        this(cacheStore, CachePolicy.unlimited(), parallelism, httpFetcher);
+    }
+
+    /**
+     * @param cacheStore  used for caching the details of each security
+     * @param cachePolicy time to live of the cached details
+     * @param parallelism number of securities resolved concurrently, 1 processes them one after another
+     * @param httpFetcher shared by all lookups of remote details
+     */
+    public SecurityService(CacheStore cacheStore, CachePolicy cachePolicy, int parallelism, HttpFetcher httpFetcher) {
+        this.cacheStore = cacheStore;
+        this.cachePolicy = cachePolicy;
+        this.parallelism = Math.max(1, parallelism);
+        this.httpFetcher = httpFetcher;
     }
 
     public List<Security> processSecurities(NodeList allSecurities) {
+        List<Security> securities = parallelism > 1 ? processSecuritiesConcurrently(allSecurities) : processSecuritiesSequentially(allSecurities);
+        securities.sort(new Security.SecurityComparator());
+
+        return securities;
+    }
+
+    /**
+     * Reads the securities of a Portfolio Performance file with a streaming parser and classifies them; with more
+     * than one thread the lookups start while the rest of the file is still being read.
+     * The result is the same as for {@link #processSecurities(NodeList)} with all security elements of the file.
+     */
+    public List<Security> processSecurities(InputStream portfolio) throws XMLStreamException {
+        List<Security> securities = new ArrayList<>();
+        if (parallelism > 1) {
+            // nested security elements are completed before their parent, so they are collected in document order
+            SortedMap<Integer, Future<Security>> pendingSecurities = new TreeMap<>();
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+            try {
+                xmlFileReader.readSecurities(portfolio, portfolioSecurity -> {
+                    if (portfolioSecurity.isActive()) {
+                        pendingSecurities.put(portfolioSecurity.getIndexInPortfolio(), executor.submit(() -> processSecurity(portfolioSecurity.getIsin(),
+                                portfolioSecurity.getName(), portfolioSecurity.getIndexInPortfolio())));
+                    }
+                });
+                collectSecurities(pendingSecurities.values(), securities);
+            } finally {
+                executor.shutdownNow();
+            }
+        } else {
+            List<PortfolioSecurity> portfolioSecurities = new ArrayList<>();
+            xmlFileReader.readSecurities(portfolio, portfolioSecurities::add);
+            portfolioSecurities.sort(Comparator.comparingInt(PortfolioSecurity::getIndexInPortfolio));
+            for (PortfolioSecurity portfolioSecurity : portfolioSecurities) {
+                if (portfolioSecurity.isActive()) {
+                    securities.add(processSecurity(portfolioSecurity.getIsin(), portfolioSecurity.getName(), portfolioSecurity.getIndexInPortfolio()));
+                }
+            }
+        }
+        securities.sort(new Security.SecurityComparator());
+
+        return securities;
+    }
+
+    private List<Security> processSecuritiesSequentially(NodeList allSecurities) {
         List<Security> securities = new ArrayList<>();
         for (int i = 0; i < allSecurities.getLength(); i++) {
             Security security = processSecurity((Element) allSecurities.item(i), i);
             if (security != null) securities.add(security);
         }
-        securities.sort(new Security.SecurityComparator());
+        return securities;
+    }
 
+    private List<Security> processSecuritiesConcurrently(NodeList allSecurities) {
+        List<Security> securities = new ArrayList<>();
+        List<Future<Security>> pendingSecurities = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            // the DOM is not thread-safe, so everything needed from it is read here before handing over to the workers
+            for (int i = 0; i < allSecurities.getLength(); i++) {
+                Element securitiesElement = (Element) allSecurities.item(i);
+                String isin = xmlHelper.getChildTextContent(securitiesElement, "isin");
+                String isRetired = xmlHelper.getChildTextContent(securitiesElement, "isRetired");
+                if (!isin.isEmpty() && "false".equals(isRetired)) {
+                    String name = xmlHelper.getChildTextContent(securitiesElement, "name");
+                    int indexInPortfolio = i;
+                    pendingSecurities.add(executor.submit(() -> processSecurity(isin, name, indexInPortfolio)));
+                }
+            }
+            collectSecurities(pendingSecurities, securities);
+        } finally {
+            executor.shutdownNow();
+        }
         return securities;
     }
 
+    private void collectSecurities(Collection<Future<Security>> pendingSecurities, List<Security> securities) {
+        try {
+            // collecting in order of submission keeps the result independent of the completion order
+            for (Future<Security> pendingSecurity : pendingSecurities) {
+                try {
+                    securities.add(pendingSecurity.get());
+                } catch (ExecutionException e) {
+                    logger.warning("Error processing security: " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warning("Processing of securities was interrupted: " + e.getMessage());
+        }
+    }
+
     Security processSecurity(Element securitiesElement, int indexInPortfolio) {
-        String isin = xmlHelper.getTextContent(securitiesElement, "isin");
-        String isRetired = xmlHelper.getTextContent(securitiesElement, "isRetired");
+        String isin = xmlHelper.getChildTextContent(securitiesElement, "isin");
+        String isRetired = xmlHelper.getChildTextContent(securitiesElement, "isRetired");
 
         if (!isin.isEmpty() && "false".equals(isRetired)) {
-            Security security = createSecurity(isin, indexInPortfolio);
-            String name = xmlHelper.getTextContent(securitiesElement, "name");
-            if ((security.getName() == null || security.getName().isEmpty()) && !name.isEmpty()) {
-                security.setName(name);
-            }
-            return security;
+            String name = xmlHelper.getChildTextContent(securitiesElement, "name");
+            return processSecurity(isin, name, indexInPortfolio);
         }
 
         return null;
     }
 
+    private Security processSecurity(String isin, String name, int indexInPortfolio) {
+        Security security = createSecurity(isin, indexInPortfolio);
+        if ((security.getName() == null || security.getName().isEmpty()) && !name.isEmpty()) {
+            security.setName(name);
+        }
+        return security;
+    }
+
     Security createSecurity(String strIsin, int indexInPortfolio) {
         Security security = new Security(strIsin, indexInPortfolio);
         try {
-            SecurityDetails securityDetails = new SecurityDetails(cachePath, strIsin);
+            SecurityDetails securityDetails = getSecurityDetails(strIsin);
 
             SecurityType securityType = getSecurityType(securityDetails);
             logger.fine(" - security is of type: " + securityType);
             security.setType(securityType);
             if (security.isETF() || security.isFonds()) {
-                JsonObject breakdownsNode = securityDetails.getBreakDownForSecurity();
-
-                if (breakdownsNode != null) {
-                    // parsing holdings
-                    Map<String, Double> oListForHoldings = getHoldingPercentageMap(breakdownsNode);
-                    security.setHoldings(oListForHoldings);
+                SecurityBreakdowns securityBreakdowns = securityDetails.getBreakdowns();
 
-                    // parsing branches
-                    security.setIndustries(getMappedPercentageForNode(breakdownsNode.getAsJsonObject("branchBreakdown")));
-
-                    // parsing country
-                    security.setCountries(getMappedPercentageForNode(breakdownsNode.getAsJsonObject("countryBreakdown")));
+                if (securityBreakdowns.hasBreakdowns()) {
+                    security.setHoldings(new HashMap<>(securityBreakdowns.getHoldings()));
+                    security.setIndustries(new HashMap<>(securityBreakdowns.getIndustries()));
+                    security.setCountries(new HashMap<>(securityBreakdowns.getCountries()));
+                    logger.fine(String.format("%d holdings, %d industries and %d countries for %s", securityBreakdowns.getHoldings().size(),
+                            securityBreakdowns.getIndustries().size(), securityBreakdowns.getCountries().size(), strIsin));
                 }
             } else if (security.isShare()) {
                 String industry = securityDetails.getIndustry();
@@ -105,43 +246,37 @@ public class SecurityService {
                 logger.fine("Setting name \"" + companyName + "\" and industry \"" + industry + "\" and country \"" + country + "\" to security: " + security);
             }
         } catch (Exception e) {
-            logger.warning("Error loading details for " + strIsin + " from " + cachePath + ": " + e.getMessage());
+            logger.warning("Error loading details for " + strIsin + " from " + cacheStore + ": " + e.getMessage());
         }
         return security;
     }
 
-    Map<String, Double> getMappedPercentageForNode(JsonObject oNode) {
-        Map<String, Double> oResultList = new HashMap<>();
-        if (oNode != null) {
-            JsonArray oArrayList = oNode.getAsJsonArray("list");
-            for (int i = 0; i < oArrayList.size(); i++) {
-                JsonObject oNodeInsideArray = ((JsonObject) oArrayList.get(i));
-                String strName = oNodeInsideArray.get("nameBreakdown").getAsString();
-                Double nPercent = oNodeInsideArray.get("investmentPct").getAsDouble();
-                String nameFundsBreakdown = oNode.get("nameFundsBreakdown").getAsString();
-                logger.finer("nameBreakdown: " + strName + " - nameFundsBreakdown: " + nameFundsBreakdown);
-                if (!strName.equals("Barmittel") || nameFundsBreakdown.equals("Instrument")) {
-                    oResultList.put(strName, nPercent);
-                    logger.fine(String.format("name: %s; Percentage: %s%%", strName, DECIMAL_FORMAT.format(nPercent)));
-                }
+    /**
+     * Loads the details of a security only once per run: concurrent requests for the same ISIN wait for the first
+     * one and share its result, later requests get it from memory. A failed lookup is not remembered.
+     */
+    SecurityDetails getSecurityDetails(String isin) throws IOException, InterruptedException {
+        CompletableFuture<SecurityDetails> ownLookup = new CompletableFuture<>();
+        CompletableFuture<SecurityDetails> runningLookup = securityDetailsByIsin.putIfAbsent(isin, ownLookup);
+        if (runningLookup == null) {
+            try {
+                SecurityDetails securityDetails = new SecurityDetails(cacheStore, cachePolicy, isin, httpFetcher);
+                ownLookup.complete(securityDetails);
+                return securityDetails;
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                securityDetailsByIsin.remove(isin, ownLookup);
+                ownLookup.completeExceptionally(e);
+                throw e;
             }
         }
-        return oResultList;
-    }
-
-    Map<String, Double> getHoldingPercentageMap(JsonObject breakdownsNode) {
-        Map<String, Double> oListForHoldings = new HashMap<>();
-        JsonObject fundsHoldingList = breakdownsNode.getAsJsonObject("fundsHoldingList");
-        JsonArray holdingListArray = fundsHoldingList != null ? fundsHoldingList.getAsJsonArray("list") : new JsonArray();
-
-        for (int i = 0; i < holdingListArray.size(); i++) {
-            JsonObject oHolding = ((JsonObject) holdingListArray.get(i));
-            String strHoldingName = oHolding.getAsJsonObject("instrument").get("name").getAsString();
-            Double nHoldingPercent = oHolding.get("investmentPct").getAsDouble();
-            logger.fine(String.format("Holding: %s; Percentage: %s%%", strHoldingName, DECIMAL_FORMAT.format(nHoldingPercent)));
-            oListForHoldings.put(strHoldingName, nHoldingPercent);
+        try {
+            return runningLookup.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException("Loading details for " + isin + " failed: " + cause.getMessage(), cause);
         }
-        return oListForHoldings;
     }
 
     public void removeOldPrices(NodeList allSecurities) {
@@ -155,7 +290,7 @@ public class SecurityService {
 
     int removeOldPrices(Element securitiesElement, LocalDate olderThan) {
         int removedCount = 0;
-        boolean isRetired = Boolean.parseBoolean(xmlHelper.getTextContent(securitiesElement, "isRetired"));
+        boolean isRetired = Boolean.parseBoolean(xmlHelper.getChildTextContent(securitiesElement, "isRetired"));
         Element prices = xmlHelper.getFirstChildElementWithNodeName(securitiesElement, "prices");
         if (prices == null) return removedCount;
         NodeList children = prices.getChildNodes();
@@ -0,0 +1,111 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Candidate filter for {@link PortfolioDocumentService#isNameSimilar}. Two names can only be similar if their lower
+ * case versions
+ * <ul>
+ *     <li>have a distance of at most 1, so they share a variant with at most one character deleted,</li>
+ *     <li>start with the same 8 characters (this includes both names starting with "alphabet"),</li>
+ *     <li>are equal up to the first blank or</li>
+ *     <li>are prefixes of each other.</li>
+ * </ul>
+ * Each of these relations is looked up in its own index, so a name is compared only with the names sharing at least
+ * one of them instead of all names added so far. If the rules of isNameSimilar change, this index has to follow.
+ */
+class SimilarNameIndex {
+    private static final int PREFIX_LENGTH = 8;
+    private final Map<String, Set<String>> namesByDeletion = new HashMap<>();
+    private final Map<String, Set<String>> namesByPrefix = new HashMap<>();
+    private final Map<String, Set<String>> namesByFirstWord = new HashMap<>();
+    private final TreeMap<String, Set<String>> namesByLowerCase = new TreeMap<>();
+    // the positions of lower case and original characters differ, all rules using both are uncertain
+    private final Set<String> irregularNames = new HashSet<>();
+    private final Set<String> allNames = new HashSet<>();
+
+    void add(String name) {
+        if (!allNames.add(name)) return;
+        String lowerCaseName = name.toLowerCase();
+        if (lowerCaseName.length() != name.length()) {
+            // always a candidate
+            irregularNames.add(name);
+            return;
+        }
+        for (String deletion : getDeletions(lowerCaseName)) {
+            namesByDeletion.computeIfAbsent(deletion, key -> new HashSet<>()).add(name);
+        }
+        if (lowerCaseName.length() >= PREFIX_LENGTH) {
+            namesByPrefix.computeIfAbsent(lowerCaseName.substring(0, PREFIX_LENGTH), key -> new HashSet<>()).add(name);
+        }
+        String firstWord = getFirstWord(name, lowerCaseName);
+        if (firstWord != null) {
+            namesByFirstWord.computeIfAbsent(firstWord, key -> new HashSet<>()).add(name);
+        }
+        namesByLowerCase.computeIfAbsent(lowerCaseName, key -> new HashSet<>()).add(name);
+    }
+
+    /**
+     * @return all names added which may be similar to the given name, in natural order
+     */
+    TreeSet<String> getCandidates(String name) {
+        String lowerCaseName = name.toLowerCase();
+        if (lowerCaseName.length() != name.length()) {
+            return new TreeSet<>(allNames);
+        }
+        TreeSet<String> candidates = new TreeSet<>(irregularNames);
+        for (String deletion : getDeletions(lowerCaseName)) {
+            addAll(candidates, namesByDeletion.get(deletion));
+        }
+        if (lowerCaseName.length() >= PREFIX_LENGTH) {
+            addAll(candidates, namesByPrefix.get(lowerCaseName.substring(0, PREFIX_LENGTH)));
+        }
+        String firstWord = getFirstWord(name, lowerCaseName);
+        if (firstWord != null) {
+            addAll(candidates, namesByFirstWord.get(firstWord));
+        }
+        // names starting with the given name
+        for (Map.Entry<String, Set<String>> entry : namesByLowerCase.tailMap(lowerCaseName, true).entrySet()) {
+            if (!entry.getKey().startsWith(lowerCaseName)) break;
+            candidates.addAll(entry.getValue());
+        }
+        // names the given name starts with
+        for (int i = 0; i < lowerCaseName.length(); i++) {
+            addAll(candidates, namesByLowerCase.get(lowerCaseName.substring(0, i)));
+        }
+        return candidates;
+    }
+
+    private static void addAll(Collection<String> candidates, Collection<String> names) {
+        if (names != null) candidates.addAll(names);
+    }
+
+    /**
+     * @return the name itself and all variants with one character deleted
+     */
+    private static List<String> getDeletions(String lowerCaseName) {
+        List<String> deletions = new ArrayList<>(lowerCaseName.length() + 1);
+        deletions.add(lowerCaseName);
+        for (int i = 0; i < lowerCaseName.length(); i++) {
+            deletions.add(lowerCaseName.substring(0, i) + lowerCaseName.substring(i + 1));
+        }
+        return deletions;
+    }
+
+    /**
+     * @return the lower case name up to and including the first blank or null if it contains none
+     */
+    private static String getFirstWord(String name, String lowerCaseName) {
+        int indexOfBlank = name.indexOf(' ');
+        return indexOfBlank < 0 ? null : lowerCaseName.substring(0, indexOfBlank + 1);
+    }
+
+}
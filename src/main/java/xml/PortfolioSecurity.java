@@ -0,0 +1,47 @@
+package xml;
+
+/**
+ * The values of a security element of a Portfolio Performance file needed to classify it.
+ * Fields missing in the file are empty, like {@link XmlHelper#getTextContent} returns them.
+ */
+public class PortfolioSecurity {
+    private final int indexInPortfolio;
+    private final String isin;
+    private final String name;
+    private final String isRetired;
+
+    /**
+     * @param indexInPortfolio position among all security elements of the file, in document order
+     */
+    public PortfolioSecurity(int indexInPortfolio, String isin, String name, String isRetired) {
+        this.indexInPortfolio = indexInPortfolio;
+        this.isin = isin;
+        this.name = name;
+        this.isRetired = isRetired;
+    }
+
+    public int getIndexInPortfolio() {
+        return indexInPortfolio;
+    }
+
+    public String getIsin() {
+        return isin;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if the security has an ISIN and is explicitly not retired, only those are classified
+     */
+    public boolean isActive() {
+        return !isin.isEmpty() && "false".equals(isRetired);
+    }
+
+    @Override
+    public String toString() {
+        return "PortfolioSecurity{" + indexInPortfolio + ", " + isin + ", " + name + ", isRetired=" + isRetired + "}";
+    }
+
+}
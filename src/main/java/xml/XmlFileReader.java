@@ -1,12 +1,37 @@
 package xml;
 
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 public class XmlFileReader {
     private static final Logger logger = Logger.getLogger(XmlFileReader.class.getCanonicalName());
+    private static final String SECURITY = "security";
+    private static final String ISIN = "isin";
+    private static final String NAME = "name";
+    private static final String IS_RETIRED = "isRetired";
+    private static final Set<String> FIELDS = Set.of(ISIN, NAME, IS_RETIRED);
+    static final String TAXONOMIES = "taxonomies";
+    static final String TAXONOMY = "taxonomy";
+    // user data key of the position of a taxonomy element among all taxonomies of the file
+    static final String TAXONOMY_INDEX = "taxonomyIndex";
+    private final XmlHelper xmlHelper = new XmlHelper();
 
     public NodeList getAllSecurities(Document doc) {
         try {
@@ -20,4 +45,148 @@ public class XmlFileReader {
         return null;
     }
 
+    /**
+     * Reads the security elements of a Portfolio Performance file with a streaming parser, without building a DOM.
+     * Every security element in document order, including references, gets the same index as in
+     * {@link #getAllSecurities(Document)}; like {@link XmlHelper#getChildTextContent} only the direct children of a
+     * security element are used as its fields.
+     *
+     * @param consumer called for each security element as soon as it has been read completely
+     */
+    public void readSecurities(InputStream input, Consumer<PortfolioSecurity> consumer) throws XMLStreamException {
+        XMLStreamReader reader = createInputFactory().createXMLStreamReader(input);
+        try {
+            int securityCount = 0;
+            int depth = 0;
+            // nested security elements are open at the same time, a field belongs to the innermost one
+            Deque<SecurityFields> openSecurities = new ArrayDeque<>();
+            String capturedField = null;
+            int captureDepth = 0;
+            StringBuilder capturedText = new StringBuilder();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String localName = reader.getLocalName();
+                    if (capturedField != null) {
+                        captureDepth++;
+                    } else if (SECURITY.equals(localName)) {
+                        openSecurities.push(new SecurityFields(securityCount++, depth));
+                    } else if (FIELDS.contains(localName) && !openSecurities.isEmpty() && openSecurities.peek().depth == depth - 1
+                            && !openSecurities.peek().values.containsKey(localName)) {
+                        capturedField = localName;
+                        captureDepth = 0;
+                        capturedText.setLength(0);
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                    if (capturedField != null) {
+                        if (captureDepth-- == 0) {
+                            openSecurities.peek().values.put(capturedField, capturedText.toString());
+                            capturedField = null;
+                        }
+                    } else if (SECURITY.equals(reader.getLocalName()) && !openSecurities.isEmpty()) {
+                        consumer.accept(openSecurities.pop().toPortfolioSecurity());
+                    }
+                } else if (capturedField != null && (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+                        || event == XMLStreamConstants.SPACE)) {
+                    capturedText.append(reader.getText());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the taxonomies with one of the given names into a document of their own with a streaming parser, without
+     * building a DOM of the whole file. The document keeps the root and the taxonomies element above the taxonomies, so
+     * relative references created inside of a taxonomy are the same as in the complete file. The taxonomies can be
+     * changed and then written back into the file with {@link XmlFileWriter#writeXml(String, Document, String)}.
+     */
+    public Document readTaxonomies(InputStream input, Set<String> taxonomyNames) throws XMLStreamException, ParserConfigurationException {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        XMLInputFactory factory = createInputFactory();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        XMLStreamReader reader = factory.createXMLStreamReader(input);
+        try {
+            int depth = 0;
+            int taxonomyCount = 0;
+            Element taxonomies = null;
+            Element taxonomy = null;
+            // innermost open element of the taxonomy being read
+            Node current = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (current != null) {
+                        current = current.appendChild(createElement(document, reader));
+                    } else if (depth == 1) {
+                        document.appendChild(createElement(document, reader));
+                    } else if (depth == 2 && TAXONOMIES.equals(reader.getLocalName())) {
+                        taxonomies = (Element) document.getDocumentElement().appendChild(createElement(document, reader));
+                    } else if (depth == 3 && taxonomies != null && TAXONOMY.equals(reader.getLocalName())) {
+                        taxonomy = (Element) taxonomies.appendChild(createElement(document, reader));
+                        taxonomy.setUserData(TAXONOMY_INDEX, taxonomyCount++, null);
+                        current = taxonomy;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                    if (current == taxonomy && taxonomy != null) {
+                        if (!taxonomyNames.contains(xmlHelper.getChildTextContent(taxonomy, NAME))) {
+                            taxonomies.removeChild(taxonomy);
+                        }
+                        taxonomy = null;
+                        current = null;
+                    } else if (current != null) {
+                        current = current.getParentNode();
+                    } else if (depth == 1) {
+                        taxonomies = null;
+                    }
+                } else if (current != null) {
+                    if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.CDATA) {
+                        current.appendChild(document.createTextNode(reader.getText()));
+                    } else if (event == XMLStreamConstants.COMMENT) {
+                        current.appendChild(document.createComment(reader.getText()));
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return document;
+    }
+
+    private Element createElement(Document document, XMLStreamReader reader) {
+        Element element = document.createElement(reader.getLocalName());
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            element.setAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+        return element;
+    }
+
+    static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    private static class SecurityFields {
+        final int index;
+        final int depth;
+        final Map<String, String> values = new HashMap<>();
+
+        SecurityFields(int index, int depth) {
+            this.index = index;
+            this.depth = depth;
+        }
+
+        PortfolioSecurity toPortfolioSecurity() {
+            return new PortfolioSecurity(index, values.getOrDefault(ISIN, ""), values.getOrDefault(NAME, ""),
+                    values.getOrDefault(IS_RETIRED, ""));
+        }
+    }
+
 }
@@ -1,32 +1,362 @@
 package xml;
 
+import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 public class XmlFileWriter {
+    private static final String ENCODING = "UTF-8";
+    private static final String ZIP_ENTRY_NAME = "data.xml";
+    private static final int BUFFER_SIZE = 8192;
+    private final XmlHelper xmlHelper = new XmlHelper();
 
-    public void writeXml(Document doc, String fileName) throws TransformerException, FileNotFoundException {
-        FileOutputStream output = new FileOutputStream(fileName);
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
+    public void writeXml(Document doc, String fileName) throws TransformerException, IOException {
+        try (OutputStream output = createPortfolioFile(fileName)) {
+            TransformerFactory transformerFactory = TransformerFactory.newInstance();
 
-        // https://mkyong.com/java/pretty-print-xml-with-java-dom-and-xslt/
-        Transformer transformer = transformerFactory.newTransformer();
+            // https://mkyong.com/java/pretty-print-xml-with-java-dom-and-xslt/
+            Transformer transformer = transformerFactory.newTransformer();
 
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty(OutputKeys.STANDALONE, "no");
+            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+            transformer.setOutputProperty(OutputKeys.STANDALONE, "no");
 
-        DOMSource source = new DOMSource(doc);
-        StreamResult result = new StreamResult(output);
+            DOMSource source = new DOMSource(doc);
+            StreamResult result = new StreamResult(output);
 
-        transformer.transform(source, result);
+            transformer.transform(source, result);
+        }
+    }
+
+    /**
+     * Writes the portfolio file with the taxonomies read by {@link XmlFileReader#readTaxonomies} replaced by their
+     * (changed) version from the given document. The output is written to a temporary file first, so the input file
+     * may be overridden. Like {@link #createPortfolioFile}, the output is compressed depending on the file name.
+     * The temporary file is created with the default permissions, which the output file keeps.
+     */
+    public void writeXml(String inputFileName, Document taxonomyDocument, String fileName) throws IOException, XMLStreamException {
+        Path target = Paths.get(fileName).toAbsolutePath();
+        Path temporaryFile = Files.createFile(target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp"));
+        try {
+            try (InputStream input = xmlHelper.openPortfolioFile(inputFileName);
+                 OutputStream output = compress(Files.newOutputStream(temporaryFile), fileName)) {
+                writeXml(input, taxonomyDocument, output);
+            }
+            Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Copies the portfolio file event by event, so it is never held in memory as a whole. Only the taxonomy elements
+     * contained in the given document are replaced, everything else is passed through unchanged. The XML declaration
+     * is the same as written by {@link #writeXml(Document, String)}, the replaced taxonomies are indented like the
+     * rest of the file.
+     */
+    public void writeXml(InputStream input, Document taxonomyDocument, OutputStream output) throws IOException, XMLStreamException {
+        Map<Integer, Element> taxonomiesByIndex = getTaxonomiesByIndex(taxonomyDocument);
+        XMLStreamReader reader = XmlFileReader.createInputFactory().createXMLStreamReader(input);
+        // XMLStreamWriter cannot write the standalone declaration
+        String version = reader.getVersion() == null ? "1.0" : reader.getVersion();
+        output.write(("<?xml version=\"" + version + "\" encoding=\"" + ENCODING + "\" standalone=\"no\"?>\n").getBytes(StandardCharsets.UTF_8));
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(output, ENCODING);
+        try {
+            // names of the open elements, the innermost first
+            Deque<String> openElements = new ArrayDeque<>();
+            int taxonomyCount = 0;
+            int event = reader.getEventType();
+            while (true) {
+                // event already read behind a start element
+                int nextEvent = -1;
+                switch (event) {
+                    case XMLStreamConstants.START_DOCUMENT:
+                        // declaration already written
+                        break;
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (openElements.size() == 2 && XmlFileReader.TAXONOMIES.equals(openElements.peek())
+                                && XmlFileReader.TAXONOMY.equals(reader.getLocalName())) {
+                            Element taxonomy = taxonomiesByIndex.get(taxonomyCount++);
+                            if (taxonomy != null) {
+                                skipElement(reader);
+                                writeNode(writer, taxonomy, openElements.size(), getIndentationUnit(taxonomy));
+                                break;
+                            }
+                        }
+                        StartTag startTag = new StartTag(reader);
+                        nextEvent = reader.next();
+                        if (nextEvent == XMLStreamConstants.END_ELEMENT) {
+                            startTag.write(writer, true);
+                            nextEvent = -1;
+                        } else {
+                            startTag.write(writer, false);
+                            openElements.push(startTag.localName);
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        openElements.pop();
+                        writer.writeEndElement();
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.SPACE:
+                        writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    case XMLStreamConstants.CDATA:
+                        writer.writeCData(reader.getText());
+                        break;
+                    case XMLStreamConstants.COMMENT:
+                        writer.writeComment(reader.getText());
+                        break;
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+                        break;
+                    case XMLStreamConstants.DTD:
+                        writer.writeDTD(reader.getText());
+                        break;
+                    case XMLStreamConstants.ENTITY_REFERENCE:
+                        writer.writeEntityRef(reader.getLocalName());
+                        break;
+                    case XMLStreamConstants.END_DOCUMENT:
+                        writer.writeEndDocument();
+                        break;
+                    default:
+                        break;
+                }
+                if (nextEvent >= 0) {
+                    event = nextEvent;
+                } else if (reader.hasNext()) {
+                    event = reader.next();
+                } else {
+                    break;
+                }
+            }
+            writer.flush();
+        } finally {
+            writer.close();
+            reader.close();
+        }
+    }
+
+    /**
+     * Creates a Portfolio Performance file, which is compressed on the fly depending on its name: gzipped for ".gz",
+     * a zip file with the XML as entry "data.xml" for ".zip" and plain XML otherwise. The ".portfolio" format of
+     * Portfolio Performance (binary, optionally encrypted) is not supported.
+     */
+    public OutputStream createPortfolioFile(String fileName) throws IOException {
+        return compress(Files.newOutputStream(Paths.get(fileName)), fileName);
+    }
+
+    private OutputStream compress(OutputStream output, String fileName) throws IOException {
+        String lowerCaseFileName = fileName.toLowerCase(Locale.ROOT);
+        try {
+            if (lowerCaseFileName.endsWith(".gz")) {
+                return new BufferedOutputStream(new GZIPOutputStream(output, BUFFER_SIZE), BUFFER_SIZE);
+            }
+            if (lowerCaseFileName.endsWith(".zip")) {
+                ZipOutputStream zip = new ZipOutputStream(output);
+                zip.putNextEntry(new ZipEntry(ZIP_ENTRY_NAME));
+                return new BufferedOutputStream(zip, BUFFER_SIZE);
+            }
+            return new BufferedOutputStream(output, BUFFER_SIZE);
+        } catch (IOException e) {
+            output.close();
+            throw e;
+        }
+    }
+
+    private Map<Integer, Element> getTaxonomiesByIndex(Document taxonomyDocument) {
+        Map<Integer, Element> taxonomiesByIndex = new HashMap<>();
+        NodeList taxonomies = taxonomyDocument.getElementsByTagName(XmlFileReader.TAXONOMY);
+        for (int i = 0; i < taxonomies.getLength(); i++) {
+            Object taxonomyIndex = taxonomies.item(i).getUserData(XmlFileReader.TAXONOMY_INDEX);
+            if (taxonomyIndex != null) {
+                taxonomiesByIndex.put((Integer) taxonomyIndex, (Element) taxonomies.item(i));
+            }
+        }
+        return taxonomiesByIndex;
+    }
+
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * @return the indentation per level of the file the taxonomy has been read from, empty if it is not indented
+     */
+    private String getIndentationUnit(Element taxonomy) {
+        int depth = 0;
+        for (Node parent = taxonomy.getParentNode(); parent instanceof Element; parent = parent.getParentNode()) {
+            depth++;
+        }
+        NodeList children = taxonomy.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            String text = children.item(i).getNodeType() == Node.TEXT_NODE ? children.item(i).getNodeValue() : "";
+            int lineStart = text.lastIndexOf('\n');
+            if (lineStart >= 0 && text.isBlank()) {
+                // whitespace in front of a child of the taxonomy
+                String childIndentation = text.substring(lineStart + 1);
+                if (childIndentation.length() % (depth + 1) != 0) return "";
+                return childIndentation.substring(0, childIndentation.length() / (depth + 1));
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Elements containing only elements (and whitespace) whose children are not on separate lines yet, e.g. because
+     * they have been added to the document, get their children indented by depth like the rest of the file.
+     */
+    private void writeNode(XMLStreamWriter writer, Node node, int depth, String indentationUnit) throws XMLStreamException {
+        switch (node.getNodeType()) {
+            case Node.ELEMENT_NODE:
+                if (node.hasChildNodes()) {
+                    writer.writeStartElement(node.getNodeName());
+                } else {
+                    writer.writeEmptyElement(node.getNodeName());
+                }
+                NamedNodeMap attributes = node.getAttributes();
+                for (int i = 0; i < attributes.getLength(); i++) {
+                    Attr attribute = (Attr) attributes.item(i);
+                    writer.writeAttribute(attribute.getName(), attribute.getValue());
+                }
+                if (node.hasChildNodes()) {
+                    NodeList children = node.getChildNodes();
+                    boolean indent = !indentationUnit.isEmpty() && needsIndentation(children);
+                    for (int i = 0; i < children.getLength(); i++) {
+                        if (indent) {
+                            if (children.item(i).getNodeType() != Node.ELEMENT_NODE) continue;
+                            writer.writeCharacters("\n" + indentationUnit.repeat(depth + 1));
+                        }
+                        writeNode(writer, children.item(i), depth + 1, indentationUnit);
+                    }
+                    if (indent) writer.writeCharacters("\n" + indentationUnit.repeat(depth));
+                    writer.writeEndElement();
+                }
+                break;
+            case Node.TEXT_NODE:
+                writer.writeCharacters(node.getNodeValue());
+                break;
+            case Node.CDATA_SECTION_NODE:
+                writer.writeCData(node.getNodeValue());
+                break;
+            case Node.COMMENT_NODE:
+                writer.writeComment(node.getNodeValue());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return true if there are only elements and whitespace, but not every element and the end tag is on a new line
+     */
+    private boolean needsIndentation(NodeList children) {
+        boolean elementFound = false;
+        boolean newLine = false;
+        boolean missingNewLine = false;
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                elementFound = true;
+                missingNewLine |= !newLine;
+                newLine = false;
+            } else if (child.getNodeType() == Node.TEXT_NODE && child.getNodeValue().isBlank()) {
+                newLine |= child.getNodeValue().indexOf('\n') >= 0;
+            } else {
+                return false;
+            }
+        }
+        return elementFound && (missingNewLine || !newLine);
+    }
+
+    /**
+     * Name, namespaces and attributes of an element, kept until it is known whether the element is empty.
+     */
+    private static class StartTag {
+        final String prefix;
+        final String localName;
+        final String namespaceURI;
+        final String[][] namespaces;
+        final String[][] attributes;
+
+        StartTag(XMLStreamReader reader) {
+            prefix = reader.getPrefix();
+            localName = reader.getLocalName();
+            namespaceURI = reader.getNamespaceURI();
+            namespaces = new String[reader.getNamespaceCount()][];
+            for (int i = 0; i < namespaces.length; i++) {
+                namespaces[i] = new String[]{reader.getNamespacePrefix(i), reader.getNamespaceURI(i)};
+            }
+            attributes = new String[reader.getAttributeCount()][];
+            for (int i = 0; i < attributes.length; i++) {
+                attributes[i] = new String[]{reader.getAttributePrefix(i), reader.getAttributeNamespace(i),
+                        reader.getAttributeLocalName(i), reader.getAttributeValue(i)};
+            }
+        }
+
+        void write(XMLStreamWriter writer, boolean empty) throws XMLStreamException {
+            if (namespaceURI == null || namespaceURI.isEmpty()) {
+                if (empty) {
+                    writer.writeEmptyElement(localName);
+                } else {
+                    writer.writeStartElement(localName);
+                }
+            } else if (empty) {
+                writer.writeEmptyElement(prefix, localName, namespaceURI);
+            } else {
+                writer.writeStartElement(prefix, localName, namespaceURI);
+            }
+            for (String[] namespace : namespaces) {
+                writer.writeNamespace(namespace[0], namespace[1]);
+            }
+            for (String[] attribute : attributes) {
+                if (attribute[1] == null || attribute[1].isEmpty()) {
+                    writer.writeAttribute(attribute[2], attribute[3]);
+                } else {
+                    writer.writeAttribute(attribute[0], attribute[1], attribute[2], attribute[3]);
+                }
+            }
+        }
     }
 
 }
@@ -14,13 +14,20 @@ import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 public class XmlHelper {
+    private static final byte[] GZIP_SIGNATURE = {(byte) 0x1f, (byte) 0x8b};
+    private static final byte[] ZIP_SIGNATURE = {'P', 'K', 3, 4};
+    private static final int BUFFER_SIZE = 8192;
 
     public Document readXmlStream(InputStream stream) throws ParserConfigurationException, SAXException, IOException {
         DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
@@ -29,7 +36,49 @@ public class XmlHelper {
     }
 
     public Document readXmlStream(String fileName) throws IOException, ParserConfigurationException, SAXException {
-        return this.readXmlStream(Files.newInputStream(new File(fileName).toPath()));
+        try (InputStream stream = openPortfolioFile(fileName)) {
+            return this.readXmlStream(stream);
+        }
+    }
+
+    /**
+     * Opens a Portfolio Performance file for reading its XML content, which is decompressed on the fly if the file
+     * is gzipped or a zip file with the XML as entry. The format is detected by the first bytes of the file, not by
+     * its name.
+     *
+     * @throws IOException if the zip file contains no XML, e.g. for the binary format of Portfolio Performance
+     */
+    public InputStream openPortfolioFile(String fileName) throws IOException {
+        InputStream input = new BufferedInputStream(Files.newInputStream(new File(fileName).toPath()));
+        try {
+            input.mark(ZIP_SIGNATURE.length);
+            byte[] signature = input.readNBytes(ZIP_SIGNATURE.length);
+            input.reset();
+            if (startsWith(signature, GZIP_SIGNATURE)) {
+                return new GZIPInputStream(input, BUFFER_SIZE);
+            }
+            if (startsWith(signature, ZIP_SIGNATURE)) {
+                ZipInputStream zip = new ZipInputStream(input);
+                for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                    if (!entry.isDirectory() && entry.getName().endsWith(".xml")) {
+                        return zip;
+                    }
+                }
+                throw new IOException(fileName + " contains no XML file, the binary format of Portfolio Performance is not supported");
+            }
+            return input;
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    private boolean startsWith(byte[] bytes, byte[] prefix) {
+        if (bytes.length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) return false;
+        }
+        return true;
     }
 
     public Node getFirstChild(Element parentElement, String tagName) {
@@ -42,6 +91,30 @@ public class XmlHelper {
         return firstChild == null ? "" : firstChild.getTextContent();
     }
 
+    /**
+     * Like {@link #getFirstChild} but only looks at the direct children instead of searching the whole subtree, e.g.
+     * all prices of a security.
+     *
+     * @return the first child element with the given name or null
+     */
+    public Element getChildElement(Node parent, String tagName) {
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE && child.getNodeName().equals(tagName)) {
+                return (Element) child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Like {@link #getTextContent} but only looks at the direct children.
+     */
+    public String getChildTextContent(Element parent, String tagName) {
+        Element child = getChildElement(parent, tagName);
+
+        return child == null ? "" : child.getTextContent();
+    }
+
     public Element getFirstChildElementWithNodeName(Node node, String nodeName) {
         Element result = null;
         NodeList children = node.getChildNodes();
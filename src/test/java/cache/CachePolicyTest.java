@@ -0,0 +1,55 @@
+package cache;
+
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.Assert.*;
+
+public class CachePolicyTest extends AbstractTest {
+    private static final Instant NOW = Instant.parse("2025-03-01T12:00:00Z");
+
+    @Test
+    public void unlimitedNeverExpires() {
+        CachePolicy cachePolicy = CachePolicy.unlimited();
+        for (CacheArtifact artifact : CacheArtifact.values()) {
+            assertNull(cachePolicy.getTimeToLive(artifact));
+            assertFalse(cachePolicy.isStale(artifact, Instant.EPOCH, NOW));
+        }
+    }
+
+    @Test
+    public void parsePerArtifact() {
+        CachePolicy cachePolicy = CachePolicy.parse("json=7, metadata=30");
+        assertEquals(Duration.ofDays(7), cachePolicy.getTimeToLive(CacheArtifact.JSON));
+        assertEquals(Duration.ofDays(30), cachePolicy.getTimeToLive(CacheArtifact.METADATA));
+        assertNull(cachePolicy.getTimeToLive(CacheArtifact.SECURITY_TYPE));
+
+        assertFalse(cachePolicy.isStale(CacheArtifact.JSON, NOW.minus(Duration.ofDays(6)), NOW));
+        assertTrue(cachePolicy.isStale(CacheArtifact.JSON, NOW.minus(Duration.ofDays(8)), NOW));
+        assertFalse(cachePolicy.isStale(CacheArtifact.METADATA, NOW.minus(Duration.ofDays(8)), NOW));
+        assertFalse(cachePolicy.isStale(CacheArtifact.SECURITY_TYPE, Instant.EPOCH, NOW));
+        // nothing cached
+        assertFalse(cachePolicy.isStale(CacheArtifact.JSON, null, NOW));
+    }
+
+    @Test
+    public void parseForAllArtifacts() {
+        CachePolicy cachePolicy = CachePolicy.parse("14,security_type=365");
+        assertEquals(Duration.ofDays(14), cachePolicy.getTimeToLive(CacheArtifact.DETAILS_REQUEST_PATH));
+        assertEquals(Duration.ofDays(365), cachePolicy.getTimeToLive(CacheArtifact.SECURITY_TYPE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseUnknownArtifact() {
+        CachePolicy.parse("holdings=7");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseInvalidDays() {
+        CachePolicy.parse("json=week");
+    }
+
+}
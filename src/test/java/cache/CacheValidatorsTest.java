@@ -0,0 +1,44 @@
+package cache;
+
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CacheValidatorsTest extends AbstractTest {
+
+    @Test
+    public void formatAndParse() {
+        Map<CacheArtifact, CacheValidators> validators = new EnumMap<>(CacheArtifact.class);
+        validators.put(CacheArtifact.JSON, new CacheValidators("W/\"123\"", "Wed, 21 Oct 2015 07:28:00 GMT"));
+        validators.put(CacheArtifact.DETAILS_REQUEST_PATH, new CacheValidators(null, "Thu, 22 Oct 2015 07:28:00 GMT"));
+        validators.put(CacheArtifact.METADATA, CacheValidators.NONE);
+
+        Map<CacheArtifact, CacheValidators> parsed = CacheValidators.parse(CacheValidators.format(validators));
+        assertEquals(2, parsed.size());
+        assertEquals("W/\"123\"", parsed.get(CacheArtifact.JSON).getEtag());
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", parsed.get(CacheArtifact.JSON).getLastModified());
+        assertNull(parsed.get(CacheArtifact.DETAILS_REQUEST_PATH).getEtag());
+        assertEquals("Thu, 22 Oct 2015 07:28:00 GMT", parsed.get(CacheArtifact.DETAILS_REQUEST_PATH).getLastModified());
+    }
+
+    @Test
+    public void requestHeaders() {
+        assertTrue(CacheValidators.NONE.toRequestHeaders().isEmpty());
+        Map<String, String> headers = new CacheValidators("\"abc\"", "Wed, 21 Oct 2015 07:28:00 GMT").toRequestHeaders();
+        assertEquals("\"abc\"", headers.get("If-None-Match"));
+        assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", headers.get("If-Modified-Since"));
+    }
+
+    @Test
+    public void parseIgnoresUnknownLines() {
+        Map<CacheArtifact, CacheValidators> parsed = CacheValidators.parse("HOLDINGS\t\"1\"\t\ngarbage\nJSON\t\"2\"\t\n");
+        assertEquals(1, parsed.size());
+        assertEquals("\"2\"", parsed.get(CacheArtifact.JSON).getEtag());
+        assertTrue(CacheValidators.parse(null).isEmpty());
+    }
+
+}
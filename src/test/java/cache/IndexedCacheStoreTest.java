@@ -0,0 +1,126 @@
+package cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static constants.PathConstants.BASE_TARGET_PATH;
+import static org.junit.Assert.*;
+
+public class IndexedCacheStoreTest extends AbstractTest {
+    private static final String STORE_PATH = BASE_TARGET_PATH + "indexed-cache/";
+
+    @Before
+    public void cleanUp() throws IOException {
+        Path storePath = Paths.get(STORE_PATH);
+        if (Files.exists(storePath)) {
+            try (Stream<Path> files = Files.walk(storePath)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        try (IndexedCacheStore store = new IndexedCacheStore(STORE_PATH)) {
+            assertNull(store.read("IE00BYYHSM20", CacheArtifact.JSON));
+            store.write("IE00BYYHSM20", CacheArtifact.JSON, "{\"a\":1}\n");
+            store.write("IE00BYYHSM20", CacheArtifact.SECURITY_TYPE, "ETF\n");
+            store.write("DE000TUAG505", CacheArtifact.METADATA, "Touristik\nDeutschland\nTUI\n");
+            assertEquals("{\"a\":1}\n", store.read("IE00BYYHSM20", CacheArtifact.JSON));
+            assertEquals("ETF\n", store.read("IE00BYYHSM20", CacheArtifact.SECURITY_TYPE));
+            assertEquals("Touristik\nDeutschland\nTUI\n", store.read("DE000TUAG505", CacheArtifact.METADATA));
+            assertNull(store.read("DE000TUAG505", CacheArtifact.JSON));
+
+            store.write("IE00BYYHSM20", CacheArtifact.SECURITY_TYPE, "FONDS\n");
+            assertEquals("FONDS\n", store.read("IE00BYYHSM20", CacheArtifact.SECURITY_TYPE));
+            assertEquals(3, store.size());
+        }
+    }
+
+    @Test
+    public void reopenWithIndex() throws IOException {
+        try (IndexedCacheStore store = new IndexedCacheStore(STORE_PATH)) {
+            store.write("IE00BYYHSM20", CacheArtifact.JSON, "{\"ü\":\"ä\"}\n");
+            store.write("IE00BYYHSM20", CacheArtifact.JSON, "{\"b\":2}\n");
+        }
+        assertTrue(Files.exists(Paths.get(STORE_PATH, IndexedCacheStore.INDEX_FILE_NAME)));
+        try (IndexedCacheStore store = new IndexedCacheStore(STORE_PATH)) {
+            assertEquals(1, store.size());
+            assertEquals("{\"b\":2}\n", store.read("IE00BYYHSM20", CacheArtifact.JSON));
+            // appended behind the mapped part of the data file
+            store.write("DE000TUAG505", CacheArtifact.SECURITY_TYPE, "SHARE\n");
+            assertEquals("SHARE\n", store.read("DE000TUAG505", CacheArtifact.SECURITY_TYPE));
+        }
+    }
+
+    @Test
+    public void recoverWithoutIndex() throws IOException {
+        try (IndexedCacheStore store = new IndexedCacheStore(STORE_PATH)) {
+            store.write("IE00BYYHSM20", CacheArtifact.DETAILS_REQUEST_PATH, "/etf/path\n");
+            store.write("DE000TUAG505", CacheArtifact.SECURITY_TYPE, "SHARE\n");
+        }
+        Files.delete(Paths.get(STORE_PATH, IndexedCacheStore.INDEX_FILE_NAME));
+        // simulate an interrupted write
+        Files.write(Paths.get(STORE_PATH, IndexedCacheStore.DATA_FILE_NAME), new byte[]{0, 12, 'X'}, StandardOpenOption.APPEND);
+        try (IndexedCacheStore store = new IndexedCacheStore(STORE_PATH)) {
+            assertEquals(2, store.size());
+            assertEquals("/etf/path\n", store.read("IE00BYYHSM20", CacheArtifact.DETAILS_REQUEST_PATH));
+            assertEquals("SHARE\n", store.read("DE000TUAG505", CacheArtifact.SECURITY_TYPE));
+        }
+    }
+
+    @Test
+    public void artifactStoredByItsCode() throws IOException {
+        try (IndexedCacheStore store = new IndexedCacheStore(STORE_PATH)) {
+            store.write("DE000TUAG505", CacheArtifact.METADATA, "Reisen\n");
+        }
+        byte[] data = Files.readAllBytes(Paths.get(STORE_PATH, IndexedCacheStore.DATA_FILE_NAME));
+        // header, isin length and isin
+        assertEquals(3, data[Integer.BYTES + Short.BYTES + "DE000TUAG505".length()]);
+        assertEquals(CacheArtifact.METADATA, CacheArtifact.fromCode((byte) 3));
+        assertNull(CacheArtifact.fromCode((byte) 99));
+    }
+
+    @Test
+    public void touchKeepsContent() throws IOException, InterruptedException {
+        try (IndexedCacheStore store = new IndexedCacheStore(STORE_PATH)) {
+            store.write("IE00BYYHSM20", CacheArtifact.JSON, "{\"a\":1}\n");
+            Instant written = store.getLastModified("IE00BYYHSM20", CacheArtifact.JSON);
+            assertNotNull(written);
+            Thread.sleep(5);
+            store.touch("IE00BYYHSM20", CacheArtifact.JSON);
+            store.touch("DE000TUAG505", CacheArtifact.JSON);
+            assertTrue(store.getLastModified("IE00BYYHSM20", CacheArtifact.JSON).isAfter(written));
+            assertNull(store.getLastModified("DE000TUAG505", CacheArtifact.JSON));
+        }
+        try (IndexedCacheStore store = new IndexedCacheStore(STORE_PATH)) {
+            assertEquals("{\"a\":1}\n", store.read("IE00BYYHSM20", CacheArtifact.JSON));
+        }
+    }
+
+    @Test
+    public void importFromFileCacheStore() throws IOException {
+        FileCacheStore fileCacheStore = new FileCacheStore(TEST_CACHE_PATH);
+        try (IndexedCacheStore store = new IndexedCacheStore(STORE_PATH)) {
+            int importedCount = store.importFrom(fileCacheStore);
+            assertTrue(importedCount > 0);
+            assertEquals(importedCount, store.size());
+            assertEquals(fileCacheStore.read("XC0009655157", CacheArtifact.SECURITY_TYPE), store.read("XC0009655157", CacheArtifact.SECURITY_TYPE));
+            assertEquals(fileCacheStore.read("XC0009655157", CacheArtifact.JSON), store.read("XC0009655157", CacheArtifact.JSON));
+            // already imported artifacts are skipped
+            assertEquals(0, store.importFrom(fileCacheStore));
+        }
+    }
+
+}
@@ -4,10 +4,23 @@ import org.junit.BeforeClass;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
 import java.util.logging.LogManager;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static constants.PathConstants.BASE_TARGET_PATH;
 
 public class AbstractTest {
     public static final String BASE_TEST_PATH = "src/test/resources/";
+    // copy of the cache in src/test/resources, so tests never change the checked-in files
+    public static final String TEST_CACHE_PATH = BASE_TARGET_PATH + "test-cache/";
+    private static boolean testCacheCopied;
 
     @BeforeClass
     public static void setupLogging() throws IOException {
@@ -15,4 +28,27 @@ public class AbstractTest {
         logManager.readConfiguration(new FileInputStream("src/test/resources/test-logging.properties"));
     }
 
+    @BeforeClass
+    public static synchronized void copyTestCache() throws IOException {
+        if (testCacheCopied) return;
+        Path testCachePath = Paths.get(TEST_CACHE_PATH);
+        if (Files.exists(testCachePath)) {
+            try (Stream<Path> oldFiles = Files.walk(testCachePath)) {
+                for (Path oldFile : oldFiles.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(oldFile);
+                }
+            }
+        }
+        Files.createDirectories(testCachePath);
+        List<Path> cachedFiles;
+        try (Stream<Path> files = Files.list(Paths.get(BASE_TEST_PATH + "cache/"))) {
+            cachedFiles = files.collect(Collectors.toList());
+        }
+        for (Path cachedFile : cachedFiles) {
+            // the time of the last modification tells whether a cached file is stale
+            Files.copy(cachedFile, testCachePath.resolve(cachedFile.getFileName()), StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        testCacheCopied = true;
+    }
+
 }
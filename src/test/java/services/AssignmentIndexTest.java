@@ -0,0 +1,46 @@
+package services;
+
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import xml.XmlHelper;
+
+import static org.junit.Assert.*;
+
+public class AssignmentIndexTest extends AbstractTest {
+    private final XmlHelper xmlHelper = new XmlHelper();
+
+    @Test
+    public void getSecurityIndex() {
+        assertEquals(1, AssignmentIndex.getSecurityIndex("../../../../securities/security"));
+        assertEquals(49, AssignmentIndex.getSecurityIndex("../../../../securities/security[49]"));
+        assertEquals(-1, AssignmentIndex.getSecurityIndex("../../../../accounts/account"));
+        assertEquals(-1, AssignmentIndex.getSecurityIndex(""));
+        assertEquals(-1, AssignmentIndex.getSecurityIndex(null));
+    }
+
+    @Test
+    public void keepIndexUpToDate() throws Exception {
+        Document document = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-country.xml");
+        Node classification = document.getFirstChild();
+        AssignmentIndex assignmentIndex = new AssignmentIndex(xmlHelper);
+
+        Element assignment = assignmentIndex.getAssignment(classification, 4);
+        assertNotNull(assignment);
+        assertEquals("804", xmlHelper.getChildTextContent(assignment, "weight"));
+        assertNull(assignmentIndex.getAssignment(classification, 5));
+
+        assignmentIndex.remove(classification, 4, assignment);
+        assertNull(assignment.getParentNode());
+        assertNull(assignmentIndex.getAssignment(classification, 4));
+
+        Element added = document.createElement("assignment");
+        xmlHelper.getChildElement(classification, "assignments").appendChild(added);
+        assignmentIndex.add(classification, 5, added);
+        assertSame(added, assignmentIndex.getAssignment(classification, 5));
+        assertEquals(1, assignmentIndex.getAssignments(classification, 5).size());
+    }
+
+}
@@ -0,0 +1,80 @@
+package services;
+
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+import xml.XmlHelper;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class ClassificationIndexTest extends AbstractTest {
+    XmlHelper xmlHelper = new XmlHelper();
+    PortfolioDocumentService portfolioDocumentService = new PortfolioDocumentService();
+
+    @Test
+    public void findSameAsScanningAllClassifications() throws IOException, ParserConfigurationException, SAXException {
+        Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "Portfolio Performance Single.xml");
+        List<String> names;
+        try (Stream<String> lines = Files.lines(Paths.get(BASE_TEST_PATH + "StockNames-input.txt"))) {
+            names = lines.collect(Collectors.toList());
+        }
+        names.add("Vereinigte Staaten");
+        names.add("USA");
+        NodeList taxonomies = portfolioDocument.getElementsByTagName("taxonomy");
+        for (int i = 0; i < taxonomies.getLength(); i++) {
+            Element taxonomy = (Element) taxonomies.item(i);
+            List<String> allNames = new ArrayList<>(names);
+            NodeList classifications = taxonomy.getElementsByTagName("classification");
+            for (int j = 0; j < classifications.getLength(); j++) {
+                allNames.add(xmlHelper.getChildTextContent((Element) classifications.item(j), "name"));
+            }
+            ClassificationIndex classificationIndex = new ClassificationIndex(xmlHelper, taxonomy);
+            for (String name : allNames) {
+                assertSame(name, scanAllClassifications(taxonomy, name), portfolioDocumentService.findClassificationBySimilarName(classificationIndex, name));
+            }
+        }
+    }
+
+    @Test
+    public void addClassification() throws IOException, ParserConfigurationException, SAXException {
+        Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten.xml");
+        Element children = (Element) portfolioDocument.getElementsByTagName("children").item(0);
+        ClassificationIndex classificationIndex = new ClassificationIndex(xmlHelper, children);
+        assertNull(portfolioDocumentService.findClassificationBySimilarName(classificationIndex, "Zalando SE"));
+
+        Element classification = portfolioDocument.createElement("classification");
+        Element name = portfolioDocument.createElement("name");
+        name.setTextContent("Zalando");
+        classification.appendChild(name);
+        children.appendChild(classification);
+        classificationIndex.add(classification);
+        assertSame(classification, portfolioDocumentService.findClassificationBySimilarName(classificationIndex, "Zalando SE"));
+        // same result as an index built after the classification has been added
+        assertSame(classification, portfolioDocumentService.findClassificationBySimilarName(new ClassificationIndex(xmlHelper, children), "Zalando SE"));
+    }
+
+    private Element scanAllClassifications(Element parent, String name) {
+        NodeList classifications = parent.getElementsByTagName("classification");
+        for (int i = 0; i < classifications.getLength(); i++) {
+            String classificationName = xmlHelper.getChildTextContent((Element) classifications.item(i), "name");
+            if (classificationName.equals("Vereinigte Staaten")) {
+                classificationName = "USA";
+            }
+            if (portfolioDocumentService.isNameSimilar(name, classificationName)) return (Element) classifications.item(i);
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,46 @@
+package services;
+
+import models.Security;
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class HoldingIndexTest extends AbstractTest {
+
+    @Test
+    public void findByNameAndAlternativeNames() {
+        Security world = createSecurity("IE00BYYHSM20", 0, Map.of("NVIDIA Corp.", 4.561, "Apple", 4.2));
+        Security share = new Security("US67066G1040", 1);
+        Security usa = createSecurity("IE000CNSFAR2", 2, Map.of("Nvidia", 6.0, "Microsoft Corp.", 5.5));
+        TreeMap<String, List<String>> allStockNames = new TreeMap<>();
+        allStockNames.put("NVIDIA Corp.", Arrays.asList("Nvidia", "NVIDIA"));
+        allStockNames.put("Apple", Arrays.asList());
+        allStockNames.put("Microsoft Corp.", Arrays.asList());
+        HoldingIndex holdingIndex = new HoldingIndex(Arrays.asList(usa, share, world), allStockNames);
+
+        // order of the portfolio
+        assertEquals(Arrays.asList(usa, world), holdingIndex.findSecurities("NVIDIA Corp."));
+        assertEquals(Arrays.asList(world), holdingIndex.findSecurities("Apple"));
+        assertEquals(Arrays.asList(), holdingIndex.findSecurities("Amazon"));
+        assertTrue(holdingIndex.hasHolding(usa, "NVIDIA Corp."));
+        assertFalse(holdingIndex.hasHolding(share, "NVIDIA Corp."));
+        assertFalse(holdingIndex.hasHolding(usa, "Apple"));
+        assertEquals(Arrays.asList(456), holdingIndex.getPercentages(world, "NVIDIA Corp."));
+        assertEquals(Arrays.asList(600), holdingIndex.getPercentages(usa, "NVIDIA Corp."));
+        assertEquals(Arrays.asList("Microsoft Corp."), holdingIndex.getSimilarHoldingCandidates(usa, "Microsoft"));
+    }
+
+    private Security createSecurity(String isin, int indexInPortfolio, Map<String, Double> holdings) {
+        Security security = new Security(isin, indexInPortfolio);
+        security.setHoldings(new HashMap<>(holdings));
+        return security;
+    }
+
+}
@@ -0,0 +1,96 @@
+package services;
+
+import cache.CacheValidators;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.Assert.*;
+
+public class HttpFetcherTest extends AbstractTest {
+
+    @Test
+    public void fetchIfModified() throws IOException, InterruptedException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/page", exchange -> {
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = "content".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.getResponseHeaders().add("Last-Modified", "Wed, 21 Oct 2015 07:28:00 GMT");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+        try {
+            HttpFetcher httpFetcher = new HttpFetcher(RateLimiter.unlimited(), 0, Duration.ZERO);
+            String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/page";
+
+            HttpFetcher.ConditionalResponse<String> response = httpFetcher.fetchIfModified(url, CacheValidators.NONE, httpFetcher::readString);
+            assertTrue(response.isModified());
+            assertEquals("content", response.getContent());
+            assertEquals("\"v1\"", response.getValidators().getEtag());
+            assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", response.getValidators().getLastModified());
+
+            response = httpFetcher.fetchIfModified(url, response.getValidators(), httpFetcher::readString);
+            assertFalse(response.isModified());
+            assertNull(response.getContent());
+            assertEquals("\"v1\"", response.getValidators().getEtag());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void finalUriOfPageNotFound() throws IOException, InterruptedException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        String[] userAgent = new String[1];
+        server.createContext("/unknown", exchange -> {
+            userAgent[0] = exchange.getRequestHeaders().getFirst("User-Agent");
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            HttpFetcher httpFetcher = new HttpFetcher(RateLimiter.unlimited(), 0, Duration.ZERO);
+            String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/unknown";
+            assertEquals(url, httpFetcher.fetchFinalUri(url).toString());
+            assertTrue(userAgent[0].startsWith("Mozilla/5.0"));
+            assertThrows(HttpFetcher.HttpStatusException.class, () -> httpFetcher.fetch(url, httpFetcher::readString));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void backoffGrowsExponentiallyWithJitter() {
+        HttpFetcher httpFetcher = new HttpFetcher(RateLimiter.unlimited(), 5, Duration.ofMillis(100));
+        for (int i = 0; i < 20; i++) {
+            long first = httpFetcher.getBackoffMillis(1);
+            assertTrue(first >= 50 && first <= 100);
+            long third = httpFetcher.getBackoffMillis(3);
+            assertTrue(third >= 200 && third <= 400);
+        }
+        // capped for many retries
+        assertTrue(httpFetcher.getBackoffMillis(40) <= 60_000);
+    }
+
+    @Test
+    public void retryAfterCappedByMaximumBackoff() {
+        HttpFetcher httpFetcher = new HttpFetcher(RateLimiter.unlimited(), 5, Duration.ofMillis(100));
+        assertEquals(2_000, httpFetcher.getWaitMillis(1, Duration.ofSeconds(2)));
+        assertEquals(60_000, httpFetcher.getWaitMillis(1, Duration.ofHours(1)));
+        long backoff = httpFetcher.getWaitMillis(1, Duration.ZERO);
+        assertTrue(backoff >= 50 && backoff <= 100);
+    }
+
+}
@@ -0,0 +1,68 @@
+package services;
+
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class NextDataInputStreamTest extends AbstractTest {
+
+    @Test
+    public void readJsonPartOfPage() throws IOException {
+        String page = Files.readString(Paths.get(BASE_TEST_PATH + "testPage.html"));
+        String expected = page.split(NextDataInputStream.START_TAG)[1].split(NextDataInputStream.END_TAG)[0];
+        assertTrue(expected.length() > 100);
+        assertEquals(expected, read(new ByteArrayInputStream(page.getBytes(StandardCharsets.UTF_8))));
+        // the page arriving in very small chunks
+        assertEquals(expected, read(new OneByteInputStream(page.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    public void keepPartialTags() throws IOException {
+        String page = "<html><script><</script " + NextDataInputStream.START_TAG + "{\"a\":\"</scrip<\\/script>ü\"}" + NextDataInputStream.END_TAG + "</html>";
+        assertEquals("{\"a\":\"</scrip<\\/script>ü\"}", read(new ByteArrayInputStream(page.getBytes(StandardCharsets.UTF_8))));
+        assertEquals("{\"a\":\"</scrip<\\/script>ü\"}", read(new OneByteInputStream(page.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test(expected = EOFException.class)
+    public void pageWithoutJsonPart() throws IOException {
+        read(new ByteArrayInputStream("<html><body>Too many requests</body></html>".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedPage() throws IOException {
+        read(new ByteArrayInputStream(("<html>" + NextDataInputStream.START_TAG + "{\"props\":{").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String read(InputStream page) throws IOException {
+        try (InputStream jsonPart = new NextDataInputStream(page)) {
+            return new String(jsonPart.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class OneByteInputStream extends FilterInputStream {
+        OneByteInputStream(byte[] content) {
+            super(new ByteArrayInputStream(content));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(1, len));
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+    }
+
+}
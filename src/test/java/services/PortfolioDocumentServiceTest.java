@@ -1,8 +1,12 @@
 package services;
 
-import com.google.gson.JsonArray;
+import models.ImportedAssignments;
 import models.Security;
+import models.IndustryAliases;
+import models.IndustryMatchCache;
 import models.SecurityDetailsCache;
+import models.SecurityType;
+import models.SimilarNamesCache;
 import org.junit.Test;
 import org.schalm.test.AbstractTest;
 import org.w3c.dom.Document;
@@ -17,6 +21,7 @@ import xml.XmlHelper;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -94,6 +99,89 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         xmlFileWriter.writeXml(portfolioDocument, BASE_TEST_PATH + "Portfolio Performance Single Commodity-Result.xml");
     }
 
+    @Test
+    public void updateXmlStreamingSameAsDom() throws Exception {
+        Security security = new Security("IE00BYYHSM20", 0);
+        security.setType(SecurityType.ETF);
+        security.setCountries(new HashMap<>(Map.of("Deutschland", 60.0, "Frankreich", 40.0)));
+        security.setIndustries(new HashMap<>(Map.of("Energie", 25.0)));
+        List<Security> securities = List.of(security);
+        String portfolioFileName = BASE_TEST_PATH + "Portfolio Performance Single.xml";
+
+        Document portfolioDocument = xmlHelper.readXmlStream(portfolioFileName);
+        portfolioDocumentService.updateXml(portfolioDocument, securities,
+                new SecurityDetailsCache(BASE_TARGET_PATH + "test-classes/streaming-" + UUID.randomUUID() + ".json"));
+
+        Document taxonomyDocument;
+        try (InputStream portfolio = Files.newInputStream(Paths.get(portfolioFileName))) {
+            taxonomyDocument = new XmlFileReader().readTaxonomies(portfolio, PortfolioDocumentService.UPDATED_TAXONOMIES);
+        }
+        assertEquals(3, taxonomyDocument.getElementsByTagName("taxonomy").getLength());
+        new PortfolioDocumentService().updateXml(taxonomyDocument, securities,
+                new SecurityDetailsCache(BASE_TARGET_PATH + "test-classes/streaming-" + UUID.randomUUID() + ".json"));
+        String outputFileName = BASE_TARGET_PATH + "Portfolio Performance Single-streaming.xml";
+        new XmlFileWriter().writeXml(portfolioFileName, taxonomyDocument, outputFileName);
+
+        Document streamedDocument = xmlHelper.readXmlStream(outputFileName);
+        // the streaming writer indents added elements
+        removeIndentation(portfolioDocument.getDocumentElement());
+        removeIndentation(streamedDocument.getDocumentElement());
+        assertTrue(portfolioDocument.getDocumentElement().isEqualNode(streamedDocument.getDocumentElement()));
+    }
+
+    @Test
+    public void updateXmlParallelSameAsSequential() throws Exception {
+        Security security = new Security("IE00BYYHSM20", 0);
+        security.setType(SecurityType.ETF);
+        security.setCountries(new HashMap<>(Map.of("Deutschland", 60.0, "Frankreich", 40.0)));
+        security.setIndustries(new HashMap<>(Map.of("Energie", 25.0, "Halbleiterelektronik", 10.0)));
+        security.setHoldings(new HashMap<>(Map.of("SAP SE", 6.5, "Zalando", 2.0)));
+        List<Security> securities = List.of(security);
+        String portfolioFileName = BASE_TEST_PATH + "Portfolio Performance Single.xml";
+
+        Document sequentialDocument = xmlHelper.readXmlStream(portfolioFileName);
+        SecurityDetailsCache sequentialCache = new SecurityDetailsCache(BASE_TARGET_PATH + "test-classes/sequential-" + UUID.randomUUID() + ".json");
+        new PortfolioDocumentService().updateXml(sequentialDocument, securities, sequentialCache);
+
+        Document taxonomyDocument;
+        try (InputStream portfolio = Files.newInputStream(Paths.get(portfolioFileName))) {
+            taxonomyDocument = new XmlFileReader().readTaxonomies(portfolio, PortfolioDocumentService.UPDATED_TAXONOMIES);
+        }
+        SecurityDetailsCache parallelCache = new SecurityDetailsCache(BASE_TARGET_PATH + "test-classes/parallel-" + UUID.randomUUID() + ".json");
+        new PortfolioDocumentService().updateXml(taxonomyDocument, securities, parallelCache, true);
+        assertEquals(sequentialCache.getCacheFileJson(), parallelCache.getCacheFileJson());
+        assertTrue(parallelCache.getCachedTopTen().size() > 0);
+
+        // the taxonomies keep their position in the file
+        String outputFileName = BASE_TARGET_PATH + "Portfolio Performance Single-parallel.xml";
+        new XmlFileWriter().writeXml(portfolioFileName, taxonomyDocument, outputFileName);
+        Document parallelDocument = xmlHelper.readXmlStream(outputFileName);
+        // new classifications get random ids and colors, the streaming writer indents added elements
+        for (Document document : Arrays.asList(sequentialDocument, parallelDocument)) {
+            removeIndentation(document.getDocumentElement());
+            for (String tagName : Arrays.asList("id", "color")) {
+                NodeList elements = document.getElementsByTagName(tagName);
+                for (int i = 0; i < elements.getLength(); i++) {
+                    elements.item(i).setTextContent("");
+                }
+            }
+        }
+        assertTrue(sequentialDocument.getDocumentElement().isEqualNode(parallelDocument.getDocumentElement()));
+    }
+
+    private void removeIndentation(Node node) {
+        Node child = node.getFirstChild();
+        while (child != null) {
+            Node next = child.getNextSibling();
+            if (child.getNodeType() == Node.TEXT_NODE && child.getNodeValue().isBlank()) {
+                node.removeChild(child);
+            } else {
+                removeIndentation(child);
+            }
+            child = next;
+        }
+    }
+
     @Test
     public void importBranches_IE00BYYHSM20() throws IOException, ParserConfigurationException, SAXException {
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "Portfolio Performance Single.xml");
@@ -106,7 +194,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 Element taxonomyElement = (Element) taxonomyNode;
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Branchen (GICS)")) {
-                    JsonArray importedBranches = portfolioDocumentService.importIndustries(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedBranches = portfolioDocumentService.importIndustries(portfolioDocument, securities, taxonomyElement);
                     assertEquals(9, importedBranches.size());
                 }
             }
@@ -116,7 +204,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     @Test
     public void importBranches_IE000CNSFAR2() throws IOException, ParserConfigurationException, SAXException {
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "Portfolio Performance Single.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         List<Security> securities = new ArrayList<>(1);
@@ -129,7 +217,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 Element taxonomyElement = (Element) taxonomyNode;
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Branchen (GICS)")) {
-                    JsonArray importedBranches = portfolioDocumentService.importIndustries(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedBranches = portfolioDocumentService.importIndustries(portfolioDocument, securities, taxonomyElement);
                     assertEquals(11, importedBranches.size());
                 }
             }
@@ -148,7 +236,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 Element taxonomyElement = (Element) taxonomyNode;
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
-                    JsonArray importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(10, importedTopTen.size());
                 }
             }
@@ -158,7 +246,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     @Test
     public void importTopTen_IE000CNSFAR2() throws IOException, ParserConfigurationException, SAXException {
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "Portfolio Performance Single.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         List<Security> securities = new ArrayList<>(1);
@@ -171,7 +259,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 Element taxonomyElement = (Element) taxonomyNode;
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
-                    JsonArray importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(10, importedTopTen.size());
                 }
             }
@@ -181,7 +269,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     @Test
     public void importTopTen_IE00BYYHSM20() throws IOException, ParserConfigurationException, SAXException {
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "Portfolio Performance Single.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE00BYYHSM20", 0);
         assertNotNull(security);
         List<Security> securities = new ArrayList<>(1);
@@ -194,7 +282,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 Element taxonomyElement = (Element) taxonomyNode;
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
-                    JsonArray importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(10, importedTopTen.size());
                 }
             }
@@ -218,7 +306,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     @Test
     public void importCountries_IE000CNSFAR2() throws IOException, ParserConfigurationException, SAXException {
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "Portfolio Performance Single.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getCountries());
@@ -234,7 +322,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 Element taxonomyElement = (Element) taxonomyNode;
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Regionen")) {
-                    JsonArray importedCountries = portfolioDocumentService.importRegions(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedCountries = portfolioDocumentService.importRegions(portfolioDocument, securities, taxonomyElement);
                     assertEquals(32, importedCountries.size());
                 }
             }
@@ -287,6 +375,54 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         }
     }
 
+    @Test
+    public void similarNamesCacheSavedAndReused() {
+        String fileName = BASE_TARGET_PATH + "test-classes/similar-names-" + UUID.randomUUID() + ".json";
+        SimilarNamesCache similarNamesCache = new SimilarNamesCache(fileName, 2);
+        PortfolioDocumentService service = new PortfolioDocumentService(BASE_TARGET_PATH, similarNamesCache, new IndustryMatchCache());
+        assertTrue(service.isNameSimilar("SAP", "SAP SE"));
+        // same pair in other order and case
+        assertTrue(service.isNameSimilar("Sap se", "SAP"));
+        assertEquals(1, similarNamesCache.size());
+        assertFalse(service.isNameSimilar("AXA", "ABB"));
+        assertTrue(service.isNameSimilar("Nvidia", "NVIDIA Corp."));
+        // least recently used pair dropped
+        assertEquals(2, similarNamesCache.size());
+        assertNull(similarNamesCache.get("SAP", "sap", "SAP SE", "sap se"));
+        similarNamesCache.save();
+
+        SimilarNamesCache reloaded = new SimilarNamesCache(fileName, 2);
+        assertEquals(Boolean.FALSE, reloaded.get("ABB", "abb", "AXA", "axa"));
+        assertEquals(Boolean.TRUE, reloaded.get("NVIDIA Corp.", "nvidia corp.", "Nvidia", "nvidia"));
+        assertEquals(similarNamesCache.toJson(), reloaded.toJson());
+    }
+
+    @Test
+    public void industryMatchCacheSavedAndReused() {
+        String fileName = BASE_TARGET_PATH + "test-classes/industry-matches-" + UUID.randomUUID() + ".json";
+        List<String> industryNames = Arrays.asList("Informationstechnologie", "Halbleiter", "Basiskonsumgüter", "Rückversicherungen");
+        IndustryMatchCache industryMatchCache = new IndustryMatchCache(fileName);
+        PortfolioDocumentService service = new PortfolioDocumentService(BASE_TARGET_PATH, new SimilarNamesCache(10), industryMatchCache);
+        industryMatchCache.useIndustries(industryNames);
+        // each industry matches itself
+        assertEquals(4, industryMatchCache.size());
+        assertEquals(0, industryMatchCache.get("Halbleiter").distance);
+        PortfolioDocumentService.BestMatch bestMatch = service.getCachedBestMatch(industryNames, "Halbleiterelektronik");
+        PortfolioDocumentService.BestMatch expected = service.getBestMatch(industryNames, "Halbleiterelektronik");
+        assertEquals(expected.bestMatchingIndustryName, bestMatch.bestMatchingIndustryName);
+        assertEquals(expected.lowestDistance, bestMatch.lowestDistance);
+        industryMatchCache.save();
+
+        IndustryMatchCache reloaded = new IndustryMatchCache(fileName);
+        reloaded.useIndustries(industryNames);
+        assertEquals("Halbleiter", reloaded.get("Halbleiterelektronik").industryName);
+        assertEquals(industryMatchCache.toJson(), reloaded.toJson());
+        // other industries in the taxonomy
+        reloaded.useIndustries(Arrays.asList("Halbleiter", "Informationstechnologie"));
+        assertNull(reloaded.get("Halbleiterelektronik"));
+        assertEquals(2, reloaded.size());
+    }
+
     @Test
     public void isNameSimilar() {
         assertTrue(portfolioDocumentService.isNameSimilar("SAP", "SAP SE"));
@@ -306,6 +442,9 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         assertFalse(portfolioDocumentService.isNameSimilar("Deutsche Bank", "Deutsche Telekom"));
         assertFalse(portfolioDocumentService.isNameSimilar("Deutsche Bank", "Deutsche Post"));
         assertFalse(portfolioDocumentService.isNameSimilar("Deutsche Post", "Deutsche Telekom"));
+        // more differences than the limit, even though one name is the beginning of the other
+        assertFalse(portfolioDocumentService.isNameSimilar("Deutsche Bank", "Deutsche Bank Aktiengesellschaft Frankfurt am Main"));
+        assertTrue(portfolioDocumentService.isNameSimilar("Nvidia", "nvidia", "NVIDIA Corp.", "nvidia corp."));
     }
 
     @Test
@@ -348,6 +487,32 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         assertEquals("", portfolioDocumentService.optimizeIndustryNameFromSecurity("diverse Branchen"));
     }
 
+    @Test
+    public void optimizeBranchNameWithIndustryAliases() throws IOException {
+        // Hannover Rück
+        assertEquals("Rückversicherungen", portfolioDocumentService.optimizeIndustryNameFromSecurity("de0008402215", "Versicherung"));
+        assertEquals("Rückversicherungen", portfolioDocumentService.optimizeIndustryNameFromSecurity("DE0008402215", "diverse Branchen"));
+        assertEquals("Halbleiter", portfolioDocumentService.optimizeIndustryNameFromSecurity("IE00BYYHSM20", "Halbleiterelektronik"));
+
+        String fileName = BASE_TARGET_PATH + "test-classes/industry-aliases-" + UUID.randomUUID() + ".json";
+        Files.writeString(Paths.get(fileName), "{\"aliases\": {\"Halbleiterelektronik\": \"Geräte zur Halbleiterproduktion\", \"Chips\": \"Halbleiter\"}, \"isinOverrides\": {\"US67066G1040\": \"Halbleiter\"}}");
+        IndustryAliases industryAliases = IndustryAliases.load(fileName);
+        assertEquals(IndustryAliases.getDefault().size() + 2, industryAliases.size());
+        PortfolioDocumentService service = new PortfolioDocumentService(BASE_TARGET_PATH, new SimilarNamesCache(10), new IndustryMatchCache(), industryAliases);
+        assertEquals("Geräte zur Halbleiterproduktion", service.optimizeIndustryNameFromSecurity("Halbleiterelektronik"));
+        assertEquals("Halbleiter", service.optimizeIndustryNameFromSecurity("Chips"));
+        assertEquals("Halbleiter", service.optimizeIndustryNameFromSecurity("US67066G1040", "Software"));
+        assertEquals("Rückversicherungen", service.optimizeIndustryNameFromSecurity("DE0008402215", "Versicherung"));
+        assertEquals("Basiskonsumgüter", service.optimizeIndustryNameFromSecurity("Konsumgüter"));
+    }
+
+    @Test(expected = IOException.class)
+    public void invalidIndustryAliases() throws IOException {
+        String fileName = BASE_TARGET_PATH + "test-classes/industry-aliases-" + UUID.randomUUID() + ".json";
+        Files.writeString(Paths.get(fileName), "{\"aliases\": [\"Chips\"]}");
+        IndustryAliases.load(fileName);
+    }
+
     @Test
     public void testGetBestMatch() {
         Collection<String> possibleBranches = Set.of("Handels-REITs", "Verschiedene REITs", "Industrielle REITs", "Hotel und Resort REITs",
@@ -369,7 +534,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     public void testFindAssignmentBySecurityIndex() throws IOException, ParserConfigurationException, SAXException {
         Document document = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-country.xml");
         Node classification = document.getFirstChild();
-        Element assessment = portfolioDocumentService.findAssignmentBySecurityIndex(classification, 4);
+        Element assessment = new AssignmentIndex(xmlHelper).getAssignment(classification, 4);
         assertNotNull(assessment);
         String weight = xmlHelper.getTextContent(assessment, "weight");
         assertNotNull(weight);
@@ -378,7 +543,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         assertNotNull(rank);
         assertEquals("0", rank);
 
-        assessment = portfolioDocumentService.findAssignmentBySecurityIndex(classification, 49);
+        assessment = new AssignmentIndex(xmlHelper).getAssignment(classification, 49);
         assertNotNull(assessment);
         weight = xmlHelper.getTextContent(assessment, "weight");
         assertNotNull(weight);
@@ -392,7 +557,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     public void testUpdateWeightOfAssignmentCountry() throws IOException, ParserConfigurationException, SAXException {
         Document document = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-country.xml");
         Node classification = document.getFirstChild();
-        Element assessment = portfolioDocumentService.findAssignmentBySecurityIndex(classification, 4);
+        Element assessment = new AssignmentIndex(xmlHelper).getAssignment(classification, 4);
         assertNotNull(assessment);
         String weight = xmlHelper.getTextContent(assessment, "weight");
         assertNotNull(weight);
@@ -410,7 +575,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         // "Tschechien" to be removed by import
         // "Ungarn" to be removed by import
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-country-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getCountries());
@@ -427,23 +592,23 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Regionen")) {
                     Element tschechien = portfolioDocumentService.findClassificationByName(taxonomyElement, "Tschechien");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(tschechien, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(tschechien, 1);
                     assertNotNull(assignment);
                     Element ungarn = portfolioDocumentService.findClassificationByName(taxonomyElement, "Ungarn");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(ungarn, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(ungarn, 1);
                     assertNotNull(assignment);
                     Element finnland = portfolioDocumentService.findClassificationByName(taxonomyElement, "Finnland");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(finnland, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(finnland, 1);
                     assertNotNull(assignment);
 
-                    JsonArray importedCountries = portfolioDocumentService.importRegions(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedCountries = portfolioDocumentService.importRegions(portfolioDocument, securities, taxonomyElement);
                     assertEquals(2, importedCountries.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(tschechien, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(tschechien, 1);
                     assertNull(assignment);
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(ungarn, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(ungarn, 1);
                     assertNull(assignment);
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(finnland, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(finnland, 1);
                     assertNotNull(assignment);
                 }
             }
@@ -455,7 +620,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         // "Italien" to add
         // "Portugal" to add
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-country-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getCountries());
@@ -472,26 +637,26 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Regionen")) {
                     Element grossbritannien = portfolioDocumentService.findClassificationByName(taxonomyElement, "Großbritannien");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(grossbritannien, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(grossbritannien, 1);
                     assertNotNull(assignment);
                     assertEquals("278", getWeightOfAssignment(assignment));
                     Element italien = portfolioDocumentService.findClassificationByName(taxonomyElement, "Italien");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(italien, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(italien, 1);
                     assertNull(assignment);
                     Element portugal = portfolioDocumentService.findClassificationByName(taxonomyElement, "Portugal");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(portugal, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(portugal, 1);
                     assertNull(assignment);
 
-                    JsonArray importedCountries = portfolioDocumentService.importRegions(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedCountries = portfolioDocumentService.importRegions(portfolioDocument, securities, taxonomyElement);
                     assertEquals(2, importedCountries.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(grossbritannien, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(grossbritannien, 1);
                     assertNotNull(assignment);
                     assertEquals("278", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(italien, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(italien, 1);
                     assertNotNull(assignment);
                     assertEquals("62", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(portugal, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(portugal, 1);
                     assertNotNull(assignment);
                     assertEquals("4", getWeightOfAssignment(assignment));
                 }
@@ -504,7 +669,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         // "Dänemark" to update
         // "Finnland" to update
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-country-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getCountries());
@@ -521,28 +686,28 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Regionen")) {
                     Element grossbritannien = portfolioDocumentService.findClassificationByName(taxonomyElement, "Großbritannien");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(grossbritannien, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(grossbritannien, 1);
                     assertNotNull(assignment);
                     assertEquals("278", getWeightOfAssignment(assignment));
                     Element daenemark = portfolioDocumentService.findClassificationByName(taxonomyElement, "Dänemark");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(daenemark, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(daenemark, 1);
                     assertNotNull(assignment);
                     assertEquals("5", getWeightOfAssignment(assignment));
                     Element finnland = portfolioDocumentService.findClassificationByName(taxonomyElement, "Finnland");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(finnland, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(finnland, 1);
                     assertNotNull(assignment);
                     assertEquals("3", getWeightOfAssignment(assignment));
 
-                    JsonArray importedCountries = portfolioDocumentService.importRegions(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedCountries = portfolioDocumentService.importRegions(portfolioDocument, securities, taxonomyElement);
                     assertEquals(2, importedCountries.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(grossbritannien, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(grossbritannien, 1);
                     assertNotNull(assignment);
                     assertEquals("278", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(daenemark, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(daenemark, 1);
                     assertNotNull(assignment);
                     assertEquals("92", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(finnland, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(finnland, 1);
                     assertNotNull(assignment);
                     assertEquals("27", getWeightOfAssignment(assignment));
                 }
@@ -558,7 +723,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     public void testUpdateWeightOfAssignmentIndustry() throws IOException, ParserConfigurationException, SAXException {
         Document document = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-industry.xml");
         Node classification = document.getFirstChild();
-        Element assessment = portfolioDocumentService.findAssignmentBySecurityIndex(classification, 38);
+        Element assessment = new AssignmentIndex(xmlHelper).getAssignment(classification, 38);
         assertNotNull(assessment);
         String weight = xmlHelper.getTextContent(assessment, "weight");
         assertNotNull(weight);
@@ -576,7 +741,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         // "Kapitalmärkte" to be removed by import
         // "Software" to be removed by import
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-industry-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getIndustries());
@@ -593,23 +758,23 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Branchen (GICS)")) {
                     Element informationstechnologie = portfolioDocumentService.findClassificationByName(taxonomyElement, "Informationstechnologie");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(informationstechnologie, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(informationstechnologie, 1);
                     assertNotNull(assignment);
                     Element kapitalmaerkte = portfolioDocumentService.findClassificationByName(taxonomyElement, "Kapitalmärkte");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(kapitalmaerkte, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(kapitalmaerkte, 1);
                     assertNotNull(assignment);
                     Element software = portfolioDocumentService.findClassificationByName(taxonomyElement, "Software");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(software, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(software, 1);
                     assertNotNull(assignment);
 
-                    JsonArray importedBranches = portfolioDocumentService.importIndustries(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedBranches = portfolioDocumentService.importIndustries(portfolioDocument, securities, taxonomyElement);
                     assertEquals(3, importedBranches.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(informationstechnologie, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(informationstechnologie, 1);
                     assertNotNull(assignment);
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(kapitalmaerkte, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(kapitalmaerkte, 1);
                     assertNull(assignment);
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(software, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(software, 1);
                     assertNull(assignment);
                 }
             }
@@ -621,7 +786,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         // "Nicht-Basiskonsumgüter" to add 1092
         // "Basiskonsumgüter" to add 655
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-industry-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getIndustries());
@@ -638,26 +803,26 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Branchen (GICS)")) {
                     Element informationstechnologie = portfolioDocumentService.findClassificationByName(taxonomyElement, "Informationstechnologie");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(informationstechnologie, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(informationstechnologie, 1);
                     assertNotNull(assignment);
                     assertEquals("2411", getWeightOfAssignment(assignment));
                     Element nichtBasisKonsumgueter = portfolioDocumentService.findClassificationByName(taxonomyElement, "Nicht-Basiskonsumgüter");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(nichtBasisKonsumgueter, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(nichtBasisKonsumgueter, 1);
                     assertNull(assignment);
                     Element basiskonsumgueter = portfolioDocumentService.findClassificationByName(taxonomyElement, "Basiskonsumgüter");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(basiskonsumgueter, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(basiskonsumgueter, 1);
                     assertNull(assignment);
 
-                    JsonArray importedBranches = portfolioDocumentService.importIndustries(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedBranches = portfolioDocumentService.importIndustries(portfolioDocument, securities, taxonomyElement);
                     assertEquals(3, importedBranches.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(informationstechnologie, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(informationstechnologie, 1);
                     assertNotNull(assignment);
                     assertEquals("2411", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(nichtBasisKonsumgueter, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(nichtBasisKonsumgueter, 1);
                     assertNotNull(assignment);
                     assertEquals("1092", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(basiskonsumgueter, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(basiskonsumgueter, 1);
                     assertNotNull(assignment);
                     assertEquals("655", getWeightOfAssignment(assignment));
                 }
@@ -670,7 +835,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         // "Gesundheitswesen" to update 1205
         // "Industrie" to update 1113
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-industry-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getIndustries());
@@ -687,28 +852,28 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Branchen (GICS)")) {
                     Element informationstechnologie = portfolioDocumentService.findClassificationByName(taxonomyElement, "Informationstechnologie");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(informationstechnologie, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(informationstechnologie, 1);
                     assertNotNull(assignment);
                     assertEquals("2411", getWeightOfAssignment(assignment));
                     Element gesundheitswesen = portfolioDocumentService.findClassificationByName(taxonomyElement, "Gesundheitswesen");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(gesundheitswesen, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(gesundheitswesen, 1);
                     assertNotNull(assignment);
                     assertEquals("100", getWeightOfAssignment(assignment));
                     Element industrie = portfolioDocumentService.findClassificationByName(taxonomyElement, "Industrie");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(industrie, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(industrie, 1);
                     assertNotNull(assignment);
                     assertEquals("200", getWeightOfAssignment(assignment));
 
-                    JsonArray importedBranches = portfolioDocumentService.importIndustries(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedBranches = portfolioDocumentService.importIndustries(portfolioDocument, securities, taxonomyElement);
                     assertEquals(3, importedBranches.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(informationstechnologie, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(informationstechnologie, 1);
                     assertNotNull(assignment);
                     assertEquals("2411", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(gesundheitswesen, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(gesundheitswesen, 1);
                     assertNotNull(assignment);
                     assertEquals("1205", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(industrie, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(industrie, 1);
                     assertNotNull(assignment);
                     assertEquals("1113", getWeightOfAssignment(assignment));
                 }
@@ -720,7 +885,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     public void testUpdateWeightOfAssignmentTopTen() throws IOException, ParserConfigurationException, SAXException {
         Document document = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten.xml");
         Node classification = document.getFirstChild();
-        Element assessment = portfolioDocumentService.findAssignmentBySecurityIndex(classification, 20);
+        Element assessment = new AssignmentIndex(xmlHelper).getAssignment(classification, 20);
         assertNotNull(assessment);
         String weight = xmlHelper.getTextContent(assessment, "weight");
         assertNotNull(weight);
@@ -738,7 +903,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         // "ABB" to be removed by import
         // "Saia" to be removed by import
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getHoldings());
@@ -755,23 +920,23 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
                     Element abb = portfolioDocumentService.findClassificationByName(taxonomyElement, "ABB");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(abb, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(abb, 1);
                     assertNotNull(assignment);
                     Element saia = portfolioDocumentService.findClassificationByName(taxonomyElement, "Saia");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(saia, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(saia, 1);
                     assertNotNull(assignment);
                     Element nvidia = portfolioDocumentService.findClassificationByName(taxonomyElement, "NVIDIA Corp.");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(nvidia, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(nvidia, 1);
                     assertNotNull(assignment);
 
-                    JsonArray importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(3, importedTopTen.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(nvidia, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(nvidia, 1);
                     assertNotNull(assignment);
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(saia, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(saia, 1);
                     assertNull(assignment);
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(abb, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(abb, 1);
                     assertNull(assignment);
                 }
             }
@@ -782,7 +947,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     public void testImportTopTen_IE000CNSFAR2_RemoveOnlyOneEntry() throws IOException, ParserConfigurationException, SAXException {
         // nothing to be removed by import
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getHoldings());
@@ -799,13 +964,13 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
                     Element tesla = portfolioDocumentService.findClassificationByName(taxonomyElement, "Tesla");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(tesla, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(tesla, 1);
                     assertNotNull(assignment);
 
-                    JsonArray importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(3, importedTopTen.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(tesla, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(tesla, 1);
                     assertNotNull(assignment);
                 }
             }
@@ -816,7 +981,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     public void testImportTopTen_IE000CNSFAR2_RemoveOnlyOneEntryAndClassificationFolder() throws IOException, ParserConfigurationException, SAXException {
         // nothing to be removed by import
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getHoldings());
@@ -833,10 +998,10 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
                     Element amd = portfolioDocumentService.findClassificationByName(taxonomyElement, "AMD");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(amd, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(amd, 1);
                     assertNotNull(assignment);
 
-                    JsonArray importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(3, importedTopTen.size());
 
                     amd = portfolioDocumentService.findClassificationByName(taxonomyElement, "AMD");
@@ -851,7 +1016,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         // "Alphabet A (Google)" to add 130
         // "Eli Lilly & Co." to add 96
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getHoldings());
@@ -868,26 +1033,26 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
                     Element amazon = portfolioDocumentService.findClassificationByName(taxonomyElement, "Amazon");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(amazon, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(amazon, 1);
                     assertNotNull(assignment);
                     assertEquals("260", getWeightOfAssignment(assignment));
                     Element alphabet = portfolioDocumentService.findClassificationByName(taxonomyElement, "Alphabet A (Google)");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(alphabet, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(alphabet, 1);
                     assertNull(assignment);
                     Element eliLilly = portfolioDocumentService.findClassificationByName(taxonomyElement, "Eli Lilly & Co.");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(eliLilly, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(eliLilly, 1);
                     assertNull(assignment);
 
-                    JsonArray importedBranches = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedBranches = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(3, importedBranches.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(amazon, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(amazon, 1);
                     assertNotNull(assignment);
                     assertEquals("260", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(alphabet, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(alphabet, 1);
                     assertNotNull(assignment);
                     assertEquals("130", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(eliLilly, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(eliLilly, 1);
                     assertNotNull(assignment);
                     assertEquals("96", getWeightOfAssignment(assignment));
                 }
@@ -899,7 +1064,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     public void testImportTopTen_FR0007052782_AddWithSimilarName() throws IOException, ParserConfigurationException, SAXException {
         // "LVMH MOET HENNESSY LOUIS VUI" to add 1154
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         List<Security> securities = new ArrayList<>(2);
         Security security = service.createSecurity("FR0007052782", 0);
         assertNotNull(security);
@@ -922,21 +1087,21 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
                     Element lvmh = portfolioDocumentService.findClassificationByName(taxonomyElement, "LVMH Moet Hennessy Louis Vuitton SE");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(lvmh, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(lvmh, 1);
                     assertNull(assignment);
                     Element lvmhNew = portfolioDocumentService.findClassificationByName(taxonomyElement, "LVMH MOET HENNESSY LOUIS VUI");
                     assertNull(lvmhNew);
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(lvmh, 2);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(lvmh, 2);
                     assertNotNull(assignment);
                     assertEquals("190", getWeightOfAssignment(assignment));
 
-                    JsonArray importedBranches = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedBranches = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(10, importedBranches.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(lvmh, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(lvmh, 1);
                     assertNotNull(assignment);
                     assertEquals("1154", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(lvmh, 2);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(lvmh, 2);
                     assertNotNull(assignment);
                     assertEquals("190", getWeightOfAssignment(assignment));
                     lvmhNew = portfolioDocumentService.findClassificationByName(taxonomyElement, "LVMH MOET HENNESSY LOUIS VUI");
@@ -950,7 +1115,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     public void testImportTopTen_FR0007052782_AddWithSimilarNameReverseOrder() throws Exception {
         // "LVMH MOET HENNESSY LOUIS VUI" to add 1154
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-FR0007052782.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         List<Security> securities = new ArrayList<>(2);
         Security security = service.createSecurity("IE00B945VV12", 0);
         assertNotNull(security);
@@ -974,22 +1139,22 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
                     // existing
                     Element lvmh = portfolioDocumentService.findClassificationByName(taxonomyElement, "LVMH Moet Hennessy Louis Vuitton SE");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(lvmh, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(lvmh, 1);
                     assertNotNull(assignment);
                     assertEquals("190", getWeightOfAssignment(assignment));
                     // not existing yet
                     Element lvmhNew = portfolioDocumentService.findClassificationByName(taxonomyElement, "LVMH MOET HENNESSY LOUIS VUI");
                     assertNull(lvmhNew);
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(lvmh, 2);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(lvmh, 2);
                     assertNull(assignment);
 
-                    JsonArray importedBranches = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedBranches = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(10, importedBranches.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(lvmh, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(lvmh, 1);
                     assertNotNull(assignment);
                     assertEquals("190", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(lvmh, 2);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(lvmh, 2);
                     assertNotNull(assignment);
                     assertEquals("1154", getWeightOfAssignment(assignment));
                     lvmhNew = portfolioDocumentService.findClassificationByName(taxonomyElement, "LVMH MOET HENNESSY LOUIS VUI");
@@ -1005,7 +1170,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
         // "Meta Platforms Inc." to update 172
         // "Microsoft" to update 462
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-IE000CNSFAR2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertNotNull(security.getHoldings());
@@ -1022,28 +1187,28 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
                     Element amazon = portfolioDocumentService.findClassificationByName(taxonomyElement, "Amazon");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(amazon, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(amazon, 1);
                     assertNotNull(assignment);
                     assertEquals("260", getWeightOfAssignment(assignment));
                     Element meta = portfolioDocumentService.findClassificationByName(taxonomyElement, "Meta Platforms Inc.");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(meta, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(meta, 1);
                     assertNotNull(assignment);
                     assertEquals("100", getWeightOfAssignment(assignment));
                     Element microsoft = portfolioDocumentService.findClassificationByName(taxonomyElement, "Microsoft");
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(microsoft, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(microsoft, 1);
                     assertNotNull(assignment);
                     assertEquals("200", getWeightOfAssignment(assignment));
 
-                    JsonArray importedBranches = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedBranches = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(3, importedBranches.size());
 
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(amazon, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(amazon, 1);
                     assertNotNull(assignment);
                     assertEquals("260", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(meta, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(meta, 1);
                     assertNotNull(assignment);
                     assertEquals("172", getWeightOfAssignment(assignment));
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(microsoft, 1);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(microsoft, 1);
                     assertNotNull(assignment);
                     assertEquals("462", getWeightOfAssignment(assignment));
                 }
@@ -1054,7 +1219,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     @Test
     public void testImportTopTen_AlphabetAdd2ExistingClassification() throws Exception {
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-Alphabet2.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         List<Security> securities = new ArrayList<>(2);
         Security security = service.createSecurity("LU1681043599-Alphabet", 0);
         assertNotNull(security);
@@ -1077,18 +1242,18 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
                     Element alphabet = portfolioDocumentService.findClassificationByName(taxonomyElement, "Alphabet A (Google)");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(alphabet, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(alphabet, 1);
                     assertNull(assignment);
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(alphabet, 2);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(alphabet, 2);
                     assertNull(assignment);
 
-                    JsonArray importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(4, importedTopTen.size());
 
-                    List<Element> foundAssignments = portfolioDocumentService.findAssignmentsBySecurityIndex(alphabet, 1);
+                    List<Element> foundAssignments = new AssignmentIndex(xmlHelper).getAssignments(alphabet, 1);
                     assertFalse(foundAssignments.isEmpty());
                     assertEquals(2, foundAssignments.size());
-                    foundAssignments = portfolioDocumentService.findAssignmentsBySecurityIndex(alphabet, 2);
+                    foundAssignments = new AssignmentIndex(xmlHelper).getAssignments(alphabet, 2);
                     assertFalse(foundAssignments.isEmpty());
                     assertEquals(2, foundAssignments.size());
                     logger.info(xmlHelper.domNode2String(alphabet, true));
@@ -1100,7 +1265,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     @Test
     public void testImportTopTen_AlphabetAdd2NewClassification() throws Exception {
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-Alphabet3.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         List<Security> securities = new ArrayList<>(2);
         Security security = service.createSecurity("LU1681043599-Alphabet", 0);
         assertNotNull(security);
@@ -1125,14 +1290,14 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                     Element alphabet = portfolioDocumentService.findClassificationByName(taxonomyElement, "Alphabet A (Google)");
                     assertNull(alphabet);
 
-                    JsonArray importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(4, importedTopTen.size());
 
                     alphabet = portfolioDocumentService.findClassificationByName(taxonomyElement, "Alphabet A (Google)");
-                    List<Element> foundAssignments = portfolioDocumentService.findAssignmentsBySecurityIndex(alphabet, 1);
+                    List<Element> foundAssignments = new AssignmentIndex(xmlHelper).getAssignments(alphabet, 1);
                     assertFalse(foundAssignments.isEmpty());
                     assertEquals(2, foundAssignments.size());
-                    foundAssignments = portfolioDocumentService.findAssignmentsBySecurityIndex(alphabet, 2);
+                    foundAssignments = new AssignmentIndex(xmlHelper).getAssignments(alphabet, 2);
                     assertFalse(foundAssignments.isEmpty());
                     assertEquals(2, foundAssignments.size());
                     logger.info(xmlHelper.domNode2String(alphabet, true));
@@ -1144,7 +1309,7 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
     @Test
     public void testImportTopTen_AlphabetAdd2ExistingClassificationSecondHolding() throws Exception {
         Document portfolioDocument = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-Alphabet4.xml");
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         List<Security> securities = new ArrayList<>(2);
         Security security = service.createSecurity("LU1681043599-Alphabet", 0);
         assertNotNull(security);
@@ -1173,26 +1338,26 @@ public class PortfolioDocumentServiceTest extends AbstractTest {
                 String taxonomyName = xmlHelper.getTextContent(taxonomyElement, "name");
                 if (taxonomyName.equals("Unternehmensgewichtung")) {
                     Element alphabet = portfolioDocumentService.findClassificationByName(taxonomyElement, "Alphabet A (Google)");
-                    Element assignment = portfolioDocumentService.findAssignmentBySecurityIndex(alphabet, 1);
+                    Element assignment = new AssignmentIndex(xmlHelper).getAssignment(alphabet, 1);
                     assertNotNull(assignment);
-                    assignment = portfolioDocumentService.findAssignmentBySecurityIndex(alphabet, 2);
+                    assignment = new AssignmentIndex(xmlHelper).getAssignment(alphabet, 2);
                     assertNotNull(assignment);
 
-                    JsonArray importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
+                    ImportedAssignments importedTopTen = portfolioDocumentService.importCompanyRatio(portfolioDocument, securities, taxonomyElement);
                     assertEquals(4, importedTopTen.size());
                     logger.info(xmlHelper.domNode2String(alphabet, true));
 
-                    List<Element> foundAssignments = portfolioDocumentService.findAssignmentsBySecurityIndex(alphabet, 1);
+                    List<Element> foundAssignments = new AssignmentIndex(xmlHelper).getAssignments(alphabet, 1);
                     assertFalse(foundAssignments.isEmpty());
                     assertEquals(2, foundAssignments.size());
                     assertEquals("311", getWeightOfAssignment(foundAssignments.get(1)));
                     assertEquals("322", getWeightOfAssignment(foundAssignments.get(0)));
-                    foundAssignments = portfolioDocumentService.findAssignmentsBySecurityIndex(alphabet, 3);
+                    foundAssignments = new AssignmentIndex(xmlHelper).getAssignments(alphabet, 3);
                     assertFalse(foundAssignments.isEmpty());
                     assertEquals(2, foundAssignments.size());
                     assertEquals("211", getWeightOfAssignment(foundAssignments.get(0)));
                     assertEquals("222", getWeightOfAssignment(foundAssignments.get(1)));
-                    foundAssignments = portfolioDocumentService.findAssignmentsBySecurityIndex(alphabet, 2);
+                    foundAssignments = new AssignmentIndex(xmlHelper).getAssignments(alphabet, 2);
                     assertFalse(foundAssignments.isEmpty());
                     assertEquals(2, foundAssignments.size());
                     assertEquals("111", getWeightOfAssignment(foundAssignments.get(0)));
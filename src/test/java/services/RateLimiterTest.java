@@ -0,0 +1,53 @@
+package services;
+
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest extends AbstractTest {
+
+    @Test
+    public void acquireWaitsForNextToken() throws InterruptedException {
+        RateLimiter rateLimiter = new RateLimiter(10, 1);
+        long start = System.nanoTime();
+        rateLimiter.acquire("www.onvista.de");
+        rateLimiter.acquire("www.onvista.de");
+        rateLimiter.acquire("www.onvista.de");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        // first request passes immediately, two more need 100 ms each
+        assertTrue("elapsed " + elapsedMillis + " ms", elapsedMillis >= 150);
+    }
+
+    @Test
+    public void hostsAreLimitedIndependently() throws InterruptedException {
+        RateLimiter rateLimiter = new RateLimiter(1, 1);
+        long start = System.nanoTime();
+        rateLimiter.acquire("www.onvista.de");
+        rateLimiter.acquire("app.parqet.com");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue("elapsed " + elapsedMillis + " ms", elapsedMillis < 500);
+    }
+
+    @Test
+    public void throttledHalvesRateAndSuccessRecovers() {
+        RateLimiter rateLimiter = new RateLimiter(4, 1);
+        rateLimiter.throttled("www.onvista.de");
+        assertEquals(2.0, rateLimiter.getCurrentRate("www.onvista.de"), 0.001);
+        rateLimiter.succeeded("www.onvista.de");
+        assertEquals(2.4, rateLimiter.getCurrentRate("www.onvista.de"), 0.001);
+        for (int i = 0; i < 20; i++) rateLimiter.succeeded("www.onvista.de");
+        assertEquals(4.0, rateLimiter.getCurrentRate("www.onvista.de"), 0.001);
+        assertEquals(4.0, rateLimiter.getCurrentRate("app.parqet.com"), 0.001);
+    }
+
+    @Test
+    public void unlimitedDoesNotWait() throws InterruptedException {
+        RateLimiter rateLimiter = RateLimiter.unlimited();
+        assertFalse(rateLimiter.isEnabled());
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) rateLimiter.acquire("www.onvista.de");
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 500);
+    }
+
+}
@@ -0,0 +1,59 @@
+package services;
+
+import com.google.gson.JsonParser;
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.*;
+
+public class SecurityBreakdownsTest extends AbstractTest {
+
+    @Test
+    public void readFullPage() throws IOException {
+        String json = Files.readString(Paths.get(BASE_TEST_PATH + "FR0007052782-nextdata.json"));
+
+        SecurityBreakdowns securityBreakdowns = SecurityBreakdowns.read(new StringReader(json));
+        assertTrue(securityBreakdowns.hasBreakdowns());
+        assertFalse(securityBreakdowns.isCompactFormat());
+        assertEquals(10, securityBreakdowns.getHoldings().size());
+        assertEquals(11.54, securityBreakdowns.getHoldings().get("LVMH MOET HENNESSY LOUIS VUI"), 0.001);
+        assertEquals(6.55, securityBreakdowns.getHoldings().get("SCHNEIDER ELECT SE"), 0.001);
+        assertEquals(11, securityBreakdowns.getIndustries().size());
+        assertEquals(23.88, securityBreakdowns.getIndustries().get("Industrie"), 0.001);
+        assertEquals(0.44, securityBreakdowns.getIndustries().get("Immobilien"), 0.001);
+        assertEquals(5, securityBreakdowns.getCountries().size());
+        assertEquals(82.19, securityBreakdowns.getCountries().get("Frankreich"), 0.001);
+        assertEquals(1.06, securityBreakdowns.getCountries().get("Luxemburg"), 0.001);
+
+        String compactJson = CompactSecurityJson.compact(JsonParser.parseString(json).getAsJsonObject()).toString();
+        SecurityBreakdowns compactBreakdowns = SecurityBreakdowns.read(new StringReader(compactJson));
+        assertTrue(compactBreakdowns.isCompactFormat());
+        assertEquals(securityBreakdowns.getHoldings(), compactBreakdowns.getHoldings());
+        assertEquals(securityBreakdowns.getIndustries(), compactBreakdowns.getIndustries());
+        assertEquals(securityBreakdowns.getCountries(), compactBreakdowns.getCountries());
+    }
+
+    @Test
+    public void cashOnlyForInstruments() throws IOException {
+        String json = "{\"props\":{\"pageProps\":{\"data\":{\"breakdowns\":{"
+                + "\"branchBreakdown\":{\"list\":[{\"nameBreakdown\":\"Barmittel\",\"investmentPct\":1.5},{\"nameBreakdown\":\"Finanzen\",\"investmentPct\":20.0}],\"nameFundsBreakdown\":\"Branchen\"},"
+                + "\"countryBreakdown\":{\"list\":[{\"nameBreakdown\":\"Barmittel\",\"investmentPct\":2.5}],\"nameFundsBreakdown\":\"Instrument\"}"
+                + "}}}}}";
+        SecurityBreakdowns securityBreakdowns = SecurityBreakdowns.read(new StringReader(json));
+        assertEquals(1, securityBreakdowns.getIndustries().size());
+        assertEquals(20.0, securityBreakdowns.getIndustries().get("Finanzen"), 0.001);
+        assertEquals(2.5, securityBreakdowns.getCountries().get("Barmittel"), 0.001);
+        assertTrue(securityBreakdowns.getHoldings().isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void readTruncated() throws IOException {
+        SecurityBreakdowns.read(new StringReader("{\"props\":{\"pageProps\":{\"data\":{\"breakdowns\":{"));
+    }
+
+}
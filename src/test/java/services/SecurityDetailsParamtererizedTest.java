@@ -47,15 +47,8 @@ public class SecurityDetailsParamtererizedTest extends AbstractTest {
 
     @Test
     public void createSecurityDetailsFromCache() throws IOException, InterruptedException {
-        SecurityDetails securityDetails = new SecurityDetails(BASE_TEST_PATH + "cache/", isin);
+        SecurityDetails securityDetails = new SecurityDetails(TEST_CACHE_PATH, isin);
         assertNotNull(securityDetails);
-        assertNotNull(securityDetails.getRootNode());
-        logger.info(isin + ": " + securityDetails.getRootNode()
-                .getAsJsonObject("props")
-                .getAsJsonObject("pageProps")
-                .getAsJsonObject("data")
-                .getAsJsonObject("snapshot")
-                .getAsJsonObject("company").toString());
 //        assertEquals(branch, securityDetails.getBranchForSecurity());
         assertEquals(branch, securityDetails.getIndustry());
         assertEquals(country, securityDetails.getCountryForSecurity());
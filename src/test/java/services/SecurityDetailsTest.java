@@ -1,15 +1,25 @@
 package services;
 
-import com.google.gson.JsonElement;
+import cache.CachePolicy;
+import cache.FileCacheStore;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import models.ImportedAssignments;
 import models.SecurityDetailsCache;
 import models.SecurityType;
 import org.junit.Test;
 import org.schalm.test.AbstractTest;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 import static constants.PathConstants.BASE_TARGET_PATH;
@@ -19,34 +29,82 @@ public class SecurityDetailsTest extends AbstractTest {
     private static final Logger logger = Logger.getLogger(SecurityDetailsTest.class.getCanonicalName());
 
     @Test
-    public void readStringFromURL() throws IOException, InterruptedException {
-        SecurityDetails securityDetails = new SecurityDetails(BASE_TEST_PATH + "cache/", "DE000TUAG505");
-        assertNotNull(securityDetails);
-        assertNotNull(securityDetails.getRootNode());
-        String pageContent = securityDetails.readStringFromURL(String.valueOf(new File(BASE_TEST_PATH + "testPage.html").toPath().toUri().toURL()));
-        assertNotNull(pageContent);
-        assertFalse(pageContent.isEmpty());
-        assertTrue(pageContent.length() > 100);
+    public void getBreakdowns() throws IOException, InterruptedException {
+        SecurityDetails securityDetails = new SecurityDetails(TEST_CACHE_PATH, "IE00BYYHSM20");
+        SecurityBreakdowns securityBreakdowns = securityDetails.getBreakdowns();
+        assertTrue(securityBreakdowns.hasBreakdowns());
+        assertFalse(securityBreakdowns.getIndustries().isEmpty());
     }
 
     @Test
-    public void getBreakDownForSecurity() throws IOException, InterruptedException {
-        SecurityDetails securityDetails = new SecurityDetails(BASE_TEST_PATH + "cache/", "IE00BYYHSM20");
-        JsonObject breakDownForSecurity = securityDetails.getBreakDownForSecurity();
-        assertNotNull(breakDownForSecurity);
-        assertNotNull(breakDownForSecurity.getAsJsonObject("branchBreakdown"));
+    public void compactJsonKeepsBreakdowns() throws IOException {
+        JsonObject rootNode = JsonParser.parseString(Files.readString(Paths.get(BASE_TEST_PATH + "FR0007052782-nextdata.json"))).getAsJsonObject();
+        assertFalse(CompactSecurityJson.isCompact(rootNode));
+
+        JsonObject compactRootNode = CompactSecurityJson.compact(rootNode);
+        assertTrue(CompactSecurityJson.isCompact(compactRootNode));
+        assertTrue(compactRootNode.toString().length() * 10 < rootNode.toString().length());
+        SecurityBreakdowns breakdowns = SecurityBreakdowns.read(new StringReader(rootNode.toString()));
+        SecurityBreakdowns compactBreakdowns = SecurityBreakdowns.read(new StringReader(compactRootNode.toString()));
+        assertFalse(breakdowns.getHoldings().isEmpty());
+        assertEquals(breakdowns.getHoldings(), compactBreakdowns.getHoldings());
+        assertEquals(breakdowns.getIndustries(), compactBreakdowns.getIndustries());
+        assertEquals(breakdowns.getCountries(), compactBreakdowns.getCountries());
+        assertSame(compactRootNode, CompactSecurityJson.compact(compactRootNode));
+    }
+
+    @Test
+    public void upgradeCachedJsonOnlyInCopyOfCache() throws IOException, InterruptedException {
+        Path sourceFile = Paths.get(BASE_TEST_PATH + "cache/XC0009655157.json");
+        String sourceJson = Files.readString(sourceFile);
+        assertFalse(CompactSecurityJson.isCompact(JsonParser.parseString(sourceJson).getAsJsonObject()));
+
+        SecurityDetails securityDetails = new SecurityDetails(TEST_CACHE_PATH, "XC0009655157");
+        assertTrue(CompactSecurityJson.isCompact(JsonParser.parseString(Files.readString(Paths.get(TEST_CACHE_PATH + "XC0009655157.json"))).getAsJsonObject()));
+        assertEquals(sourceJson, Files.readString(sourceFile));
+        assertNotNull(securityDetails.getBreakdowns());
     }
 
     @Test
-    public void extractJsonPartFromHtml() throws IOException, InterruptedException {
-        SecurityDetails securityDetails = new SecurityDetails(BASE_TEST_PATH + "cache/", "DE000TUAG505");
-        String pageContent = securityDetails.readStringFromURL(String.valueOf(new File(BASE_TEST_PATH + "testPage.html").toPath().toUri().toURL()));
-        String jsonString = securityDetails.extractJsonPartFromHtml(pageContent);
-        assertNotNull(jsonString);
-        assertFalse(jsonString.isEmpty());
-        assertTrue(jsonString.length() > 100);
-        JsonElement jsonElement = JsonParser.parseString(jsonString);
-        assertNotNull(jsonElement);
+    public void breakdownsReadOnce() throws IOException, InterruptedException {
+        SecurityDetails securityDetails = new SecurityDetails(TEST_CACHE_PATH, "XC0009655157");
+        SecurityBreakdowns securityBreakdowns = securityDetails.getBreakdowns();
+        assertSame(securityBreakdowns, securityDetails.getBreakdowns());
+        assertThrows(UnsupportedOperationException.class, () -> securityBreakdowns.getCountries().clear());
+    }
+
+    @Test
+    public void useStaleCacheIfRefreshFails() throws IOException, InterruptedException {
+        Path cachePath = Paths.get(BASE_TARGET_PATH + "stale-cache/");
+        Files.createDirectories(cachePath);
+        FileTime lastWeek = FileTime.from(Instant.now().minus(Duration.ofDays(7)));
+        for (String suffix : new String[]{"-type.txt", ".txt", ".json", "-metadata.txt"}) {
+            Path cachedFile = cachePath.resolve("XC0009655157" + suffix);
+            Files.copy(Paths.get(TEST_CACHE_PATH + "XC0009655157" + suffix), cachedFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.setLastModifiedTime(cachedFile, lastWeek);
+        }
+        FileCacheStore cacheStore = new FileCacheStore(cachePath.toString());
+        HttpFetcher httpFetcher = new HttpFetcher(RateLimiter.unlimited(), 0, Duration.ZERO);
+
+        SecurityDetails securityDetails = new SecurityDetails(cacheStore, CachePolicy.parse("1"), "XC0009655157", httpFetcher);
+        assertNotNull(securityDetails.getBreakdowns());
+        assertNotNull(securityDetails.getIndustry());
+    }
+
+    @Test
+    public void countryOfShareFromMetaData() throws IOException, InterruptedException {
+        Path cachePath = Paths.get(BASE_TARGET_PATH + "share-cache/");
+        Files.createDirectories(cachePath);
+        for (String suffix : new String[]{"-type.txt", ".txt"}) {
+            Files.copy(Paths.get(TEST_CACHE_PATH + "XC0009655157" + suffix), cachePath.resolve("XC0009655157" + suffix), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.writeString(cachePath.resolve("XC0009655157.json"),
+                "{\"props\":{\"pageProps\":{\"data\":{\"snapshot\":{\"company\":{\"nameCountry\":\"Irland\"}}}}}}\n");
+        Files.writeString(cachePath.resolve("XC0009655157-metadata.txt"), "Edelmetalle\nDeutschland\nGold\n");
+
+        SecurityDetails securityDetails = new SecurityDetails(cachePath.toString(), "XC0009655157", new HttpFetcher(RateLimiter.unlimited(), 0, Duration.ZERO));
+        assertTrue(securityDetails.isShare());
+        assertEquals("Deutschland", securityDetails.getCountryForSecurity());
     }
 
     @Test
@@ -57,6 +115,21 @@ public class SecurityDetailsTest extends AbstractTest {
         assertEquals("Top 10", 10, securityDetailsCache.getCachedTopTen().asList().size());
     }
 
+    @Test
+    public void saveCacheUnchanged() throws IOException {
+        String fileName = BASE_TEST_PATH + "XmlFileWriterTest/IE00BYYHSM20.json";
+        SecurityDetailsCache securityDetailsCache = new SecurityDetailsCache(fileName);
+        ImportedAssignments importedIndustries = ImportedAssignments.fromJson(securityDetailsCache.getCachedIndustries());
+        assertTrue(importedIndustries.contains("Industrie", "IE00BYYHSM20", 1774));
+        assertFalse(importedIndustries.contains("Industrie", "IE00BYYHSM20", 1775));
+
+        String savedFileName = BASE_TARGET_PATH + "IE00BYYHSM20-" + UUID.randomUUID() + ".json";
+        Files.copy(Paths.get(fileName), Paths.get(savedFileName));
+        new SecurityDetailsCache(savedFileName).save();
+        assertEquals(JsonParser.parseString(Files.readString(Paths.get(fileName))),
+                JsonParser.parseString(Files.readString(Paths.get(savedFileName))));
+    }
+
     @Test
     public void loadFromCache_IE000CNSFAR2() {
         SecurityDetailsCache securityDetailsCache = new SecurityDetailsCache(BASE_TEST_PATH + "XmlFileWriterTest/IE000CNSFAR2.json");
@@ -0,0 +1,27 @@
+package services;
+
+import models.Security;
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class SecurityRegistryTest extends AbstractTest {
+
+    @Test
+    public void getByIndexInPortfolio() {
+        Security first = new Security("IE00BYYHSM20", 0);
+        Security sparse = new Security("DE000TUAG505", 41);
+        SecurityRegistry securityRegistry = new SecurityRegistry(Arrays.asList(sparse, null, first, new Security("XC0009655157", 41)));
+        assertSame(first, securityRegistry.get(0));
+        assertSame(sparse, securityRegistry.get(41));
+        assertNull(securityRegistry.get(1));
+        assertNull(securityRegistry.get(-1));
+        assertNull(securityRegistry.get(42));
+        assertNull(new SecurityRegistry(Collections.emptyList()).get(0));
+    }
+
+}
@@ -1,5 +1,8 @@
 package services;
 
+import cache.CacheArtifact;
+import cache.CacheStore;
+import cache.FileCacheStore;
 import models.Security;
 import org.junit.Test;
 import org.schalm.test.AbstractTest;
@@ -10,9 +13,21 @@ import org.xml.sax.SAXException;
 import xml.XmlHelper;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static constants.PathConstants.BASE_TARGET_PATH;
 import static org.junit.Assert.*;
@@ -33,9 +48,105 @@ public class SecurityServiceTest extends AbstractTest {
         assertEquals(1, securityList.size());
     }
 
+    @Test
+    public void processSecuritiesConcurrently() throws IOException, ParserConfigurationException, SAXException {
+        Document document = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-Alphabet.xml");
+        NodeList securityNodes = document.getElementsByTagName("security");
+        assertEquals(2, securityNodes.getLength());
+
+        List<Security> sequentialList = new SecurityService(TEST_CACHE_PATH).processSecurities(securityNodes);
+        List<Security> concurrentList = new SecurityService(TEST_CACHE_PATH, 4).processSecurities(securityNodes);
+        assertEquals(sequentialList.size(), concurrentList.size());
+        for (int i = 0; i < sequentialList.size(); i++) {
+            assertEquals(sequentialList.get(i).getIsin(), concurrentList.get(i).getIsin());
+            assertEquals(sequentialList.get(i).getIndexInPortfolio(), concurrentList.get(i).getIndexInPortfolio());
+            assertEquals(sequentialList.get(i).getName(), concurrentList.get(i).getName());
+        }
+    }
+
+    @Test
+    public void processSecuritiesFromStream() throws IOException, ParserConfigurationException, SAXException, XMLStreamException {
+        Document document = xmlHelper.readXmlStream(BASE_TEST_PATH + "classification-topten-Alphabet.xml");
+        List<Security> domList = new SecurityService(TEST_CACHE_PATH).processSecurities(document.getElementsByTagName("security"));
+        for (int threads : new int[]{1, 4}) {
+            List<Security> streamList;
+            try (InputStream portfolio = Files.newInputStream(Paths.get(BASE_TEST_PATH + "classification-topten-Alphabet.xml"))) {
+                streamList = new SecurityService(TEST_CACHE_PATH, threads).processSecurities(portfolio);
+            }
+            assertEquals(domList.size(), streamList.size());
+            for (int i = 0; i < domList.size(); i++) {
+                assertEquals(domList.get(i).getIsin(), streamList.get(i).getIsin());
+                assertEquals(domList.get(i).getIndexInPortfolio(), streamList.get(i).getIndexInPortfolio());
+                assertEquals(domList.get(i).getName(), streamList.get(i).getName());
+            }
+        }
+    }
+
+    @Test
+    public void getSecurityDetailsOnlyOncePerIsin() throws Exception {
+        CountDownLatch firstLoadStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstLoad = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        // the security type is the first artifact read for new details, the first load waits there for the others
+        CacheStore cacheStore = new FileCacheStore(TEST_CACHE_PATH) {
+            @Override
+            public String read(String isin, CacheArtifact artifact) throws IOException {
+                if (artifact == CacheArtifact.SECURITY_TYPE && loads.incrementAndGet() == 1) {
+                    firstLoadStarted.countDown();
+                    try {
+                        releaseFirstLoad.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(e);
+                    }
+                }
+                return super.read(isin, artifact);
+            }
+        };
+        SecurityService service = new SecurityService(cacheStore, 1, HttpFetcher.getDefault());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<SecurityDetails> first = executor.submit(() -> service.getSecurityDetails("XC0009655157"));
+            assertTrue(firstLoadStarted.await(10, TimeUnit.SECONDS));
+            List<Thread> waitingThreads = Collections.synchronizedList(new ArrayList<>());
+            List<Future<SecurityDetails>> lookups = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                lookups.add(executor.submit(() -> {
+                    waitingThreads.add(Thread.currentThread());
+                    return service.getSecurityDetails("XC0009655157");
+                }));
+            }
+            // all other lookups wait for the first one, which is still loading
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!allWaiting(waitingThreads, 7)) {
+                assertTrue(System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+            assertFalse(first.isDone());
+            releaseFirstLoad.countDown();
+            for (Future<SecurityDetails> lookup : lookups) {
+                assertSame(first.get(), lookup.get());
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            releaseFirstLoad.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private boolean allWaiting(List<Thread> threads, int count) {
+        synchronized (threads) {
+            if (threads.size() < count) return false;
+            for (Thread thread : threads) {
+                if (thread.getState() != Thread.State.WAITING) return false;
+            }
+            return true;
+        }
+    }
+
     @Test
     public void createSecurityEtf() {
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE00BYYHSM20", 0);
         assertNotNull(security);
         assertEquals("IE00BYYHSM20", security.getIsin());
@@ -49,7 +160,7 @@ public class SecurityServiceTest extends AbstractTest {
 
     @Test
     public void createSecurityStock() {
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("DE000TUAG505", 0);
         assertNotNull(security);
         assertEquals("DE000TUAG505", security.getIsin());
@@ -62,7 +173,7 @@ public class SecurityServiceTest extends AbstractTest {
     }
     @Test
     public void createSecurityCommodity() {
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("XC0009655157", 0);
         assertNotNull(security);
         assertEquals("XC0009655157", security.getIsin());
@@ -74,17 +185,9 @@ public class SecurityServiceTest extends AbstractTest {
         assertTrue(security.getHoldings().isEmpty());
     }
 
-    @Test
-    public void getMappedPercentageForNode() {
-    }
-
-    @Test
-    public void getHoldingPercentageMap() {
-    }
-
     @Test
     public void createSecurityEtfMsciWorld() {
-        SecurityService service = new SecurityService(BASE_TEST_PATH + "cache/");
+        SecurityService service = new SecurityService(TEST_CACHE_PATH);
         Security security = service.createSecurity("IE000CNSFAR2", 0);
         assertNotNull(security);
         assertEquals("IE000CNSFAR2", security.getIsin());
@@ -0,0 +1,73 @@
+package services;
+
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class SimilarNameIndexTest extends AbstractTest {
+    PortfolioDocumentService portfolioDocumentService = new PortfolioDocumentService();
+
+    @Test
+    public void getCandidates() {
+        SimilarNameIndex similarNameIndex = new SimilarNameIndex();
+        for (String name : Arrays.asList("SAP SE", "ALPHABET INC CL A", "Meta Platforms Inc.", "ING Group", "AXA", "Novo Nordisk")) {
+            similarNameIndex.add(name);
+        }
+        // prefix
+        assertTrue(similarNameIndex.getCandidates("Sap").contains("SAP SE"));
+        // same 8 characters
+        assertTrue(similarNameIndex.getCandidates("Alphabet C (Google)").contains("ALPHABET INC CL A"));
+        // same first word
+        assertTrue(similarNameIndex.getCandidates("Meta Platforms (ehem. Facebook)").contains("Meta Platforms Inc."));
+        // distance of 1
+        assertTrue(similarNameIndex.getCandidates("ING Groep").contains("ING Group"));
+        assertTrue(similarNameIndex.getCandidates("AX").contains("AXA"));
+        assertEquals(Set.of(), similarNameIndex.getCandidates("ABB"));
+        assertEquals(Set.of(), similarNameIndex.getCandidates("Novartis AG"));
+    }
+
+    @Test
+    public void reduceSameAsComparingAllNames() throws IOException {
+        List<String> input = new ArrayList<>();
+        for (String fileName : Arrays.asList("StockNames-input.txt", "StockNames-input2.txt")) {
+            try (Stream<String> lines = Files.lines(Paths.get(BASE_TEST_PATH + fileName))) {
+                List<String> names = lines.collect(Collectors.toList());
+                assertEquals(compareAllNames(names), portfolioDocumentService.reduceSimilarStrings(names));
+                input.addAll(names);
+            }
+        }
+        input.addAll(Arrays.asList("Vanguard FTSE All-World", "Vanguard FTSE All-World", "Alphabet Inc.", "İş Bankası", "is bankasi", "", "Deutsche Bank", "Deutsche Post"));
+        assertEquals(compareAllNames(input), portfolioDocumentService.reduceSimilarStrings(input));
+    }
+
+    private TreeMap<String, List<String>> compareAllNames(List<String> input) {
+        TreeMap<String, List<String>> result = new TreeMap<>();
+        for (String inputName : input) {
+            boolean found = false;
+            if (!inputName.startsWith("Vanguard")) {
+                for (String existingName : result.keySet()) {
+                    if (portfolioDocumentService.isNameSimilar(inputName, existingName)) {
+                        result.get(existingName).add(inputName);
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            if (!found) result.put(inputName, new ArrayList<>());
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,75 @@
+package xml;
+
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class XmlFileReaderTest extends AbstractTest {
+    private final XmlFileReader xmlFileReader = new XmlFileReader();
+    private final XmlHelper xmlHelper = new XmlHelper();
+
+    @Test
+    public void readSecuritiesSameAsDom() throws Exception {
+        for (String fileName : new String[]{"Portfolio Performance Single.xml", "classification-topten-Alphabet.xml",
+                "classification-country-IE000CNSFAR2.xml", "Security-retired.xml", "EtfSecurity.xml"}) {
+            Document document = xmlHelper.readXmlStream(BASE_TEST_PATH + fileName);
+            NodeList securityNodes = xmlFileReader.getAllSecurities(document);
+            List<PortfolioSecurity> portfolioSecurities = readSecurities(Files.newInputStream(Paths.get(BASE_TEST_PATH + fileName)));
+
+            assertEquals(fileName, securityNodes.getLength(), portfolioSecurities.size());
+            for (int i = 0; i < securityNodes.getLength(); i++) {
+                Element securityElement = (Element) securityNodes.item(i);
+                PortfolioSecurity portfolioSecurity = portfolioSecurities.get(i);
+                assertEquals(fileName, i, portfolioSecurity.getIndexInPortfolio());
+                assertEquals(fileName, xmlHelper.getChildTextContent(securityElement, "isin"), portfolioSecurity.getIsin());
+                assertEquals(fileName, xmlHelper.getChildTextContent(securityElement, "name"), portfolioSecurity.getName());
+                boolean active = !xmlHelper.getChildTextContent(securityElement, "isin").isEmpty()
+                        && "false".equals(xmlHelper.getChildTextContent(securityElement, "isRetired"));
+                assertEquals(fileName, active, portfolioSecurity.isActive());
+            }
+        }
+    }
+
+    @Test
+    public void readNestedAndReferencedSecurities() throws Exception {
+        String xml = "<client><securities>"
+                + "<security><name>First</name><isin>DE0000000001</isin><isRetired>false</isRetired></security>"
+                + "<security><name>Outer</name><events><security><isin>DE0000000002</isin></security></events><isRetired>true</isRetired></security>"
+                + "</securities><taxonomies><taxonomy><name>Branchen</name></taxonomy></taxonomies>"
+                + "<security reference=\"../securities/security\"/></client>";
+        List<PortfolioSecurity> portfolioSecurities = readSecurities(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(4, portfolioSecurities.size());
+        assertTrue(portfolioSecurities.get(0).isActive());
+        // the isin of the nested security is not the one of the outer security
+        assertEquals("Outer", portfolioSecurities.get(1).getName());
+        assertEquals("", portfolioSecurities.get(1).getIsin());
+        assertFalse(portfolioSecurities.get(1).isActive());
+        assertEquals("DE0000000002", portfolioSecurities.get(2).getIsin());
+        assertEquals("", portfolioSecurities.get(2).getName());
+        assertEquals("", portfolioSecurities.get(3).getIsin());
+        assertFalse(portfolioSecurities.get(3).isActive());
+    }
+
+    private List<PortfolioSecurity> readSecurities(InputStream input) throws Exception {
+        List<PortfolioSecurity> portfolioSecurities = new ArrayList<>();
+        try (InputStream portfolio = input) {
+            xmlFileReader.readSecurities(portfolio, portfolioSecurities::add);
+        }
+        portfolioSecurities.sort(Comparator.comparingInt(PortfolioSecurity::getIndexInPortfolio));
+        return portfolioSecurities;
+    }
+
+}
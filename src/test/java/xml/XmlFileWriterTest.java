@@ -0,0 +1,143 @@
+package xml;
+
+import org.junit.Test;
+import org.schalm.test.AbstractTest;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static constants.PathConstants.BASE_TARGET_PATH;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class XmlFileWriterTest extends AbstractTest {
+    private static final String PORTFOLIO_FILE = BASE_TEST_PATH + "Portfolio Performance Single.xml";
+    private final XmlFileReader xmlFileReader = new XmlFileReader();
+    private final XmlFileWriter xmlFileWriter = new XmlFileWriter();
+    private final XmlHelper xmlHelper = new XmlHelper();
+
+    @Test
+    public void copyUnchangedTaxonomies() throws Exception {
+        Document taxonomyDocument;
+        try (InputStream input = Files.newInputStream(Paths.get(PORTFOLIO_FILE))) {
+            taxonomyDocument = xmlFileReader.readTaxonomies(input, Set.of("Regionen", "Branchen (GICS)"));
+        }
+        assertEquals("client", taxonomyDocument.getDocumentElement().getNodeName());
+        assertEquals(2, taxonomyDocument.getElementsByTagName("taxonomy").getLength());
+
+        String outputFileName = BASE_TARGET_PATH + "Portfolio Performance Single-copy.xml";
+        xmlFileWriter.writeXml(PORTFOLIO_FILE, taxonomyDocument, outputFileName);
+        Document expected = xmlHelper.readXmlStream(PORTFOLIO_FILE);
+        Document actual = xmlHelper.readXmlStream(outputFileName);
+        assertTrue(expected.getDocumentElement().isEqualNode(actual.getDocumentElement()));
+    }
+
+    @Test
+    public void keepDefaultPermissions() throws Exception {
+        Path defaultFile = Paths.get(BASE_TARGET_PATH + "default-permissions-" + UUID.randomUUID() + ".xml");
+        Files.createFile(defaultFile);
+        Path outputFile = Paths.get(BASE_TARGET_PATH + "Portfolio Performance Single-permissions.xml");
+        Files.deleteIfExists(outputFile);
+        try (InputStream input = Files.newInputStream(Paths.get(PORTFOLIO_FILE))) {
+            xmlFileWriter.writeXml(PORTFOLIO_FILE, xmlFileReader.readTaxonomies(input, Set.of("Regionen")), outputFile.toString());
+        }
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        assertEquals(Files.getPosixFilePermissions(defaultFile), Files.getPosixFilePermissions(outputFile));
+    }
+
+    @Test
+    public void spliceChangedTaxonomy() throws Exception {
+        String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<client><securities><security><name>A &amp; B</name></security>"
+                + "<security reference=\"../security\"/></securities>"
+                + "<taxonomies><taxonomy><name>Regionen</name><root><children/></root></taxonomy>"
+                + "<taxonomy><name>Other</name></taxonomy><taxonomy><name>Regionen</name></taxonomy></taxonomies></client>";
+        Document taxonomyDocument = xmlFileReader.readTaxonomies(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), Set.of("Regionen"));
+        NodeList taxonomies = taxonomyDocument.getElementsByTagName("taxonomy");
+        assertEquals(2, taxonomies.getLength());
+        Element children = (Element) ((Element) taxonomies.item(0)).getElementsByTagName("children").item(0);
+        Element classification = taxonomyDocument.createElement("classification");
+        classification.setAttribute("reference", "../../../../securities/security[2]");
+        classification.setTextContent("<ü>");
+        children.appendChild(classification);
+        taxonomies.item(1).getParentNode().removeChild(taxonomies.item(1));
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        xmlFileWriter.writeXml(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), taxonomyDocument, output);
+        // a taxonomy removed from the document is copied unchanged
+        assertEquals(xml.replace("<children/>", "<children><classification reference=\"../../../../securities/security[2]\">&lt;ü&gt;</classification></children>")
+                        .replace("encoding=\"UTF-8\"?>", "encoding=\"UTF-8\" standalone=\"no\"?>"),
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void indentSplicedTaxonomy() throws Exception {
+        String xml = "<client>\n  <taxonomies>\n    <taxonomy>\n      <name>Regionen</name>\n      <root>\n        <children/>\n"
+                + "      </root>\n    </taxonomy>\n  </taxonomies>\n</client>";
+        Document taxonomyDocument = xmlFileReader.readTaxonomies(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), Set.of("Regionen"));
+        Element children = (Element) taxonomyDocument.getElementsByTagName("children").item(0);
+        Element classification = taxonomyDocument.createElement("classification");
+        Element name = taxonomyDocument.createElement("name");
+        name.setTextContent("Europa");
+        classification.appendChild(name);
+        classification.appendChild(taxonomyDocument.createElement("assignments"));
+        children.appendChild(classification);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        xmlFileWriter.writeXml(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), taxonomyDocument, output);
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+                        + xml.replace("<children/>", "<children>\n          <classification>\n            <name>Europa</name>\n"
+                        + "            <assignments/>\n          </classification>\n        </children>"),
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void readAndWriteCompressed() throws Exception {
+        Document portfolioDocument = xmlHelper.readXmlStream(PORTFOLIO_FILE);
+        for (String suffix : new String[]{".xml.gz", ".zip"}) {
+            String compressedFileName = BASE_TARGET_PATH + "Portfolio Performance Single" + suffix;
+            xmlFileWriter.writeXml(portfolioDocument, compressedFileName);
+            byte[] signature = new byte[2];
+            try (InputStream input = Files.newInputStream(Paths.get(compressedFileName))) {
+                assertEquals(2, input.read(signature));
+            }
+            assertArrayEquals(suffix, suffix.endsWith(".gz") ? new byte[]{0x1f, (byte) 0x8b} : new byte[]{'P', 'K'}, signature);
+
+            Document expected = xmlHelper.readXmlStream(compressedFileName);
+            assertEquals(portfolioDocument.getElementsByTagName("*").getLength(), expected.getElementsByTagName("*").getLength());
+
+            // the streaming writer reads and writes compressed files as well
+            Document taxonomyDocument;
+            try (InputStream input = xmlHelper.openPortfolioFile(compressedFileName)) {
+                taxonomyDocument = xmlFileReader.readTaxonomies(input, Set.of("Regionen"));
+            }
+            xmlFileWriter.writeXml(compressedFileName, taxonomyDocument, compressedFileName);
+            Document actual = xmlHelper.readXmlStream(compressedFileName);
+            assertTrue(suffix, expected.getDocumentElement().isEqualNode(actual.getDocumentElement()));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectZipWithoutXml() throws Exception {
+        String fileName = BASE_TARGET_PATH + "binary.portfolio";
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(Paths.get(fileName)))) {
+            zip.putNextEntry(new ZipEntry("data.portfolio"));
+            zip.write("PPPBV1".getBytes(StandardCharsets.US_ASCII));
+        }
+        xmlHelper.readXmlStream(fileName);
+    }
+
+}